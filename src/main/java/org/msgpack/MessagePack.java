@@ -17,17 +17,21 @@
 //
 package org.msgpack;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
+import org.msgpack.io.BufferAllocator;
+import org.msgpack.io.HeapBufferAllocator;
 import org.msgpack.template.Template;
 import org.msgpack.template.TemplateRegistry;
 import org.msgpack.packer.Packer;
 import org.msgpack.packer.BufferPacker;
 import org.msgpack.packer.MessagePackPacker;
 import org.msgpack.packer.MessagePackBufferPacker;
+import org.msgpack.packer.EncodedStringCache;
 import org.msgpack.packer.Unconverter;
 import org.msgpack.unpacker.Unpacker;
 import org.msgpack.unpacker.BufferUnpacker;
@@ -52,6 +56,10 @@ import org.msgpack.type.Value;
 public class MessagePack {
     private TemplateRegistry registry;
 
+    private BufferAllocator allocator = HeapBufferAllocator.getInstance();
+
+    private EncodedStringCache stringCache;
+
     /**
      * 
      * @since 0.6.0
@@ -67,6 +75,8 @@ public class MessagePack {
      */
     public MessagePack(MessagePack msgpack) {
         registry = new TemplateRegistry(msgpack.registry);
+        allocator = msgpack.allocator;
+        stringCache = msgpack.stringCache;
     }
 
     protected MessagePack(TemplateRegistry registry) {
@@ -82,6 +92,47 @@ public class MessagePack {
         registry.setClassLoader(cl);
     }
 
+    /**
+     * Sets the allocator that buffer-based serializers and deserializers take
+     * their chunks from. Chunks are returned to it when the serializer or
+     * deserializer is cleared.
+     * 
+     * @since 0.6.8
+     * @param allocator
+     */
+    public void setBufferAllocator(BufferAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    /**
+     * 
+     * @since 0.6.8
+     * @return allocator used by buffer-based serializers and deserializers
+     */
+    public BufferAllocator getBufferAllocator() {
+        return allocator;
+    }
+
+    /**
+     * Sets the cache of encoded strings used by serializers created after
+     * this call, or null to disable it.
+     * 
+     * @since 0.6.8
+     * @param cache
+     */
+    public void setEncodedStringCache(EncodedStringCache cache) {
+        this.stringCache = cache;
+    }
+
+    /**
+     * 
+     * @since 0.6.8
+     * @return cache of encoded strings, or null
+     */
+    public EncodedStringCache getEncodedStringCache() {
+        return stringCache;
+    }
+
     /**
      * Returns serializer that enables serializing objects into
      * {@link java.io.OutputStream} object.
@@ -95,6 +146,23 @@ public class MessagePack {
         return new MessagePackPacker(this, out);
     }
 
+    /**
+     * Returns serializer that enables serializing objects into
+     * {@link java.io.OutputStream} object. Output is buffered by the specified
+     * size and written to the stream when the buffer fills up or
+     * {@link Packer#flush()} is called.
+     * 
+     * @since 0.6.8
+     * @param out
+     *            output stream
+     * @param bufferSize
+     *            size of write buffer
+     * @return stream-based serializer
+     */
+    public Packer createPacker(OutputStream out, int bufferSize) {
+        return new MessagePackPacker(this, out, bufferSize);
+    }
+
     /**
      * Returns serializer that enables serializing objects into buffer.
      * 
@@ -117,6 +185,22 @@ public class MessagePack {
         return new MessagePackBufferPacker(this, bufferSize);
     }
 
+    /**
+     * Returns serializer that links byte arrays and buffers of at least
+     * <code>referenceThreshold</code> bytes by reference instead of copying
+     * them. Such blobs must not be modified until the packer is cleared.
+     * 
+     * @since 0.6.8
+     * @param bufferSize
+     *            initial size of buffer
+     * @param referenceThreshold
+     *            minimum size of blobs written by reference
+     * @return buffer-based serializer
+     */
+    public BufferPacker createBufferPacker(int bufferSize, int referenceThreshold) {
+        return new MessagePackBufferPacker(this, bufferSize, referenceThreshold);
+    }
+
     /**
      * Returns deserializer that enables deserializing
      * {@link java.io.InputStream} object.
@@ -130,6 +214,64 @@ public class MessagePack {
         return new MessagePackUnpacker(this, in);
     }
 
+    /**
+     * Returns deserializer that enables deserializing
+     * {@link java.io.InputStream} object. The stream is read ahead into a
+     * buffer of the specified size, so the deserializer may consume more bytes
+     * from the stream than it deserializes.
+     * 
+     * @since 0.6.8
+     * @param in
+     *            input stream
+     * @param bufferSize
+     *            size of read-ahead buffer
+     * @return stream-based deserializer
+     */
+    public Unpacker createUnpacker(InputStream in, int bufferSize) {
+        return new MessagePackUnpacker(this, in, bufferSize);
+    }
+
+    /**
+     * Returns deserializer that enables deserializing file. The file is read
+     * through memory-mapped regions, so raw values are decoded without
+     * copying them to heap.
+     * 
+     * @since 0.6.8
+     * @param file
+     *            input file
+     * @return file-based deserializer
+     * @throws IOException
+     */
+    public Unpacker createUnpacker(File file) throws IOException {
+        return new MessagePackUnpacker(this, file);
+    }
+
+    /**
+     * Returns deserializer that enables deserializing byte array. Unlike
+     * {@link #createBufferUnpacker(byte[])}, bytes can't be fed to it later.
+     * 
+     * @since 0.6.8
+     * @param bytes
+     *            input byte array
+     * @return array-based deserializer
+     */
+    public Unpacker createUnpacker(byte[] bytes) {
+        return createUnpacker(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns deserializer that enables deserializing byte array.
+     * 
+     * @since 0.6.8
+     * @param bytes
+     * @param off
+     * @param len
+     * @return array-based deserializer
+     */
+    public Unpacker createUnpacker(byte[] bytes, int off, int len) {
+        return new MessagePackUnpacker(this, bytes, off, len);
+    }
+
     /**
      * Returns empty deserializer that enables deserializing buffer.
      * 
@@ -195,7 +337,7 @@ public class MessagePack {
             Template<T> tmpl = registry.lookup(v.getClass());
             tmpl.write(pk, v);
         }
-        return pk.toByteArray();
+        return toByteArray(pk);
     }
 
     /**
@@ -211,7 +353,7 @@ public class MessagePack {
     public <T> byte[] write(T v, Template<T> template) throws IOException {
         BufferPacker pk = createBufferPacker();
         template.write(pk, v);
-        return pk.toByteArray();
+        return toByteArray(pk);
     }
 
     /**
@@ -266,7 +408,14 @@ public class MessagePack {
         // FIXME ValueTemplate should do this
         BufferPacker pk = createBufferPacker();
         pk.write(v);
-        return pk.toByteArray();
+        return toByteArray(pk);
+    }
+
+    private static byte[] toByteArray(BufferPacker pk) throws IOException {
+        // returns the chunks to the allocator
+        byte[] bytes = pk.toByteArray();
+        pk.close();
+        return bytes;
     }
 
     /**
@@ -294,7 +443,7 @@ public class MessagePack {
      * @throws IOException
      */
     public Value read(byte[] bytes, int off, int len) throws IOException {
-        return createBufferUnpacker(bytes, off, len).readValue();
+        return createUnpacker(bytes, off, len).readValue();
     }
 
     /**
@@ -384,7 +533,7 @@ public class MessagePack {
      * @throws IOException
      */
     public <T> T read(byte[] bytes, T v, Template<T> tmpl) throws IOException {
-        BufferUnpacker u = createBufferUnpacker(bytes);
+        Unpacker u = createUnpacker(bytes);
         return (T) tmpl.read(u, v);
     }
 
@@ -401,7 +550,7 @@ public class MessagePack {
     public <T> T read(byte[] bytes, int off, int len, Class<T> c) throws IOException {
         @SuppressWarnings("unchecked")
         Template<T> tmpl = registry.lookup(c);
-        BufferUnpacker u = createBufferUnpacker(bytes, off, len);
+        Unpacker u = createUnpacker(bytes, off, len);
         return (T) tmpl.read(u, null);
     }
 
@@ -714,13 +863,13 @@ public class MessagePack {
 
     @Deprecated
     public static <T> T unpack(byte[] bytes, Template<T> template) throws IOException {
-        BufferUnpacker u = new MessagePackBufferUnpacker(globalMessagePack).wrap(bytes);
+        Unpacker u = globalMessagePack.createUnpacker(bytes);
         return template.read(u, null);
     }
 
     @Deprecated
     public static <T> T unpack(byte[] bytes, Template<T> template, T to) throws IOException {
-        BufferUnpacker u = new MessagePackBufferUnpacker(globalMessagePack).wrap(bytes);
+        Unpacker u = globalMessagePack.createUnpacker(bytes);
         return template.read(u, to);
     }
 
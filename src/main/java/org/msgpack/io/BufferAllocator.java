@@ -0,0 +1,36 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Source of the chunks used by {@link LinkedBufferOutput} and
+ * {@link LinkedBufferInput}. Chunks are released when the owner is cleared or
+ * has consumed them, and may be handed out again by {@link #allocate(int)}.
+ */
+public interface BufferAllocator {
+    /**
+     * Returns a buffer whose capacity is at least <code>size</code>, with
+     * position 0 and limit equal to its capacity. The buffer is either direct
+     * or backed by an array starting at offset 0.
+     */
+    public ByteBuffer allocate(int size);
+
+    public void release(ByteBuffer buffer);
+}
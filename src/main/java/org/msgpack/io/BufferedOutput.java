@@ -20,11 +20,17 @@ package org.msgpack.io;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
-abstract class BufferedOutput implements Output {
+abstract class BufferedOutput implements Output, StringOutput, PrimitiveArrayOutput {
+    // backing array of the current chunk, or null if the chunk is direct
     protected byte[] buffer;
     protected int filled;
     protected final int bufferSize;
+    // current chunk, or null until the next write
     protected ByteBuffer castByteBuffer;
+    // scratch for encoding strings into a heap chunk
+    private char[] chars;
+
+    private static final int CHAR_BLOCK_SIZE = 256;
 
     public BufferedOutput(int bufferSize) {
         if (bufferSize < 9) {
@@ -34,19 +40,26 @@ abstract class BufferedOutput implements Output {
     }
 
     private void allocateNewBuffer() {
-        buffer = new byte[bufferSize];
-        castByteBuffer = ByteBuffer.wrap(buffer);
+        castByteBuffer = allocateChunk(bufferSize);
+        buffer = castByteBuffer.hasArray() ? castByteBuffer.array() : null;
+    }
+
+    /**
+     * Returns a buffer used as the next chunk. A heap buffer must be backed
+     * by an array starting at offset 0; a direct buffer may be returned too.
+     */
+    protected ByteBuffer allocateChunk(int size) {
+        return ByteBuffer.allocate(size);
     }
 
     private void reserve(int len) throws IOException {
-        if (buffer == null) {
+        if (castByteBuffer == null) {
             allocateNewBuffer();
             return;
         }
         if (bufferSize - filled < len) {
-            if (!flushBuffer(buffer, 0, filled)) {
-                buffer = new byte[bufferSize];
-                castByteBuffer = ByteBuffer.wrap(buffer);
+            if (!flushChunk(castByteBuffer, filled)) {
+                allocateNewBuffer();
             }
             filled = 0;
         }
@@ -54,7 +67,7 @@ abstract class BufferedOutput implements Output {
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-        if (buffer == null) {
+        if (castByteBuffer == null) {
             if (bufferSize < len) {
                 flushBuffer(b, off, len);
                 return;
@@ -62,17 +75,18 @@ abstract class BufferedOutput implements Output {
             allocateNewBuffer();
         }
         if (len <= bufferSize - filled) {
-            System.arraycopy(b, off, buffer, filled, len);
+            castByteBuffer.position(filled);
+            castByteBuffer.put(b, off, len);
             filled += len;
         } else if (len <= bufferSize) {
-            if (!flushBuffer(buffer, 0, filled)) {
+            if (!flushChunk(castByteBuffer, filled)) {
                 allocateNewBuffer();
             }
-            filled = 0;
-            System.arraycopy(b, off, buffer, 0, len);
+            castByteBuffer.position(0);
+            castByteBuffer.put(b, off, len);
             filled = len;
         } else {
-            flush();
+            flushFilled();
             flushBuffer(b, off, len);
         }
     }
@@ -80,7 +94,7 @@ abstract class BufferedOutput implements Output {
     @Override
     public void write(ByteBuffer bb) throws IOException {
         int len = bb.remaining();
-        if (buffer == null) {
+        if (castByteBuffer == null) {
             if (bufferSize < len) {
                 flushByteBuffer(bb);
                 return;
@@ -88,17 +102,18 @@ abstract class BufferedOutput implements Output {
             allocateNewBuffer();
         }
         if (len <= bufferSize - filled) {
-            bb.get(buffer, filled, len);
+            castByteBuffer.position(filled);
+            castByteBuffer.put(bb);
             filled += len;
         } else if (len <= bufferSize) {
-            if (!flushBuffer(buffer, 0, filled)) {
+            if (!flushChunk(castByteBuffer, filled)) {
                 allocateNewBuffer();
             }
-            filled = 0;
-            bb.get(buffer, 0, len);
+            castByteBuffer.position(0);
+            castByteBuffer.put(bb);
             filled = len;
         } else {
-            flush();
+            flushFilled();
             flushByteBuffer(bb);
         }
     }
@@ -106,7 +121,7 @@ abstract class BufferedOutput implements Output {
     @Override
     public void writeByte(byte v) throws IOException {
         reserve(1);
-        buffer[filled++] = v;
+        castByteBuffer.put(filled++, v);
     }
 
     @Override
@@ -147,14 +162,14 @@ abstract class BufferedOutput implements Output {
     @Override
     public void writeByteAndByte(byte b, byte v) throws IOException {
         reserve(2);
-        buffer[filled++] = b;
-        buffer[filled++] = v;
+        castByteBuffer.put(filled++, b);
+        castByteBuffer.put(filled++, v);
     }
 
     @Override
     public void writeByteAndShort(byte b, short v) throws IOException {
         reserve(3);
-        buffer[filled++] = b;
+        castByteBuffer.put(filled++, b);
         castByteBuffer.putShort(filled, v);
         filled += 2;
     }
@@ -162,7 +177,7 @@ abstract class BufferedOutput implements Output {
     @Override
     public void writeByteAndInt(byte b, int v) throws IOException {
         reserve(5);
-        buffer[filled++] = b;
+        castByteBuffer.put(filled++, b);
         castByteBuffer.putInt(filled, v);
         filled += 4;
     }
@@ -170,7 +185,7 @@ abstract class BufferedOutput implements Output {
     @Override
     public void writeByteAndLong(byte b, long v) throws IOException {
         reserve(9);
-        buffer[filled++] = b;
+        castByteBuffer.put(filled++, b);
         castByteBuffer.putLong(filled, v);
         filled += 8;
     }
@@ -178,7 +193,7 @@ abstract class BufferedOutput implements Output {
     @Override
     public void writeByteAndFloat(byte b, float v) throws IOException {
         reserve(5);
-        buffer[filled++] = b;
+        castByteBuffer.put(filled++, b);
         castByteBuffer.putFloat(filled, v);
         filled += 4;
     }
@@ -186,21 +201,326 @@ abstract class BufferedOutput implements Output {
     @Override
     public void writeByteAndDouble(byte b, double v) throws IOException {
         reserve(9);
-        buffer[filled++] = b;
+        castByteBuffer.put(filled++, b);
         castByteBuffer.putDouble(filled, v);
         filled += 8;
     }
 
+    // each pass of the array writers fills the current chunk with as many
+    // elements as fit in their worst-case size
+
+    public void writeIntArray(int[] a, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end) {
+            reserve(5);
+            int n = Math.min(end - off, (bufferSize - filled) / 5);
+            ByteBuffer bb = castByteBuffer;
+            int pos = filled;
+            for (int i = off, last = off + n; i < last; i++) {
+                pos = putInt(bb, pos, a[i]);
+            }
+            filled = pos;
+            off += n;
+        }
+    }
+
+    public void writeLongArray(long[] a, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end) {
+            reserve(9);
+            int n = Math.min(end - off, (bufferSize - filled) / 9);
+            ByteBuffer bb = castByteBuffer;
+            int pos = filled;
+            for (int i = off, last = off + n; i < last; i++) {
+                long d = a[i];
+                if ((int) d == d) {
+                    pos = putInt(bb, pos, (int) d);
+                } else if (d < 0) {
+                    // signed 64
+                    bb.put(pos, (byte) 0xd3);
+                    bb.putLong(pos + 1, d);
+                    pos += 9;
+                } else if (d < (1L << 32)) {
+                    // unsigned 32
+                    bb.put(pos, (byte) 0xce);
+                    bb.putInt(pos + 1, (int) d);
+                    pos += 5;
+                } else {
+                    // unsigned 64
+                    bb.put(pos, (byte) 0xcf);
+                    bb.putLong(pos + 1, d);
+                    pos += 9;
+                }
+            }
+            filled = pos;
+            off += n;
+        }
+    }
+
+    public void writeFloatArray(float[] a, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end) {
+            reserve(5);
+            int n = Math.min(end - off, (bufferSize - filled) / 5);
+            ByteBuffer bb = castByteBuffer;
+            int pos = filled;
+            for (int i = off, last = off + n; i < last; i++) {
+                bb.put(pos, (byte) 0xca);
+                bb.putFloat(pos + 1, a[i]);
+                pos += 5;
+            }
+            filled = pos;
+            off += n;
+        }
+    }
+
+    public void writeDoubleArray(double[] a, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end) {
+            reserve(9);
+            int n = Math.min(end - off, (bufferSize - filled) / 9);
+            ByteBuffer bb = castByteBuffer;
+            int pos = filled;
+            for (int i = off, last = off + n; i < last; i++) {
+                bb.put(pos, (byte) 0xcb);
+                bb.putDouble(pos + 1, a[i]);
+                pos += 9;
+            }
+            filled = pos;
+            off += n;
+        }
+    }
+
+    // same encoding as MessagePackPacker.writeInt
+    private static int putInt(ByteBuffer bb, int pos, int d) {
+        if (d < -(1 << 5)) {
+            if (d < -(1 << 15)) {
+                // signed 32
+                bb.put(pos, (byte) 0xd2);
+                bb.putInt(pos + 1, d);
+                return pos + 5;
+            } else if (d < -(1 << 7)) {
+                // signed 16
+                bb.put(pos, (byte) 0xd1);
+                bb.putShort(pos + 1, (short) d);
+                return pos + 3;
+            } else {
+                // signed 8
+                bb.put(pos, (byte) 0xd0);
+                bb.put(pos + 1, (byte) d);
+                return pos + 2;
+            }
+        } else if (d < (1 << 7)) {
+            // fixnum
+            bb.put(pos, (byte) d);
+            return pos + 1;
+        } else if (d < (1 << 8)) {
+            // unsigned 8
+            bb.put(pos, (byte) 0xcc);
+            bb.put(pos + 1, (byte) d);
+            return pos + 2;
+        } else if (d < (1 << 16)) {
+            // unsigned 16
+            bb.put(pos, (byte) 0xcd);
+            bb.putShort(pos + 1, (short) d);
+            return pos + 3;
+        } else {
+            // unsigned 32
+            bb.put(pos, (byte) 0xce);
+            bb.putInt(pos + 1, d);
+            return pos + 5;
+        }
+    }
+
+    public void writeRawString(String s) throws IOException {
+        int len = s.length();
+        // worst case is 3 bytes per char; a surrogate pair takes 4 bytes for 2 chars
+        int header = rawHeaderSize((long) len * 3);
+        reserve(header + 4);
+        int start = filled;
+        filled += header;
+        // encode into what is left of the current chunk first, so that it
+        // isn't flushed partly filled
+        int i = encodeChars(s, 0, bufferSize - 4);
+        int n = filled - start - header;
+        if (i < len) {
+            // the rest goes to the next chunks; its exact length is needed
+            // before the header leaves the current one
+            n += utf8Length(s, i);
+        }
+        int actual = rawHeaderSize(n);
+        if (actual < header) {
+            // the encoded length fits in a smaller header
+            moveBytes(start + header, start + actual, filled - start - header);
+            filled -= header - actual;
+        }
+        putRawHeader(start, n);
+        while (i < len) {
+            reserve(4);
+            i = encodeChars(s, i, bufferSize - 4);
+        }
+    }
+
+    private static int rawHeaderSize(long len) {
+        if (len < 32) {
+            return 1;
+        } else if (len < 65536) {
+            return 3;
+        } else {
+            return 5;
+        }
+    }
+
+    private void putRawHeader(int pos, int len) {
+        if (len < 32) {
+            castByteBuffer.put(pos, (byte) (0xa0 | len));
+        } else if (len < 65536) {
+            castByteBuffer.put(pos, (byte) 0xda);
+            castByteBuffer.putShort(pos + 1, (short) len);
+        } else {
+            castByteBuffer.put(pos, (byte) 0xdb);
+            castByteBuffer.putInt(pos + 1, len);
+        }
+    }
+
+    void moveBytes(int from, int to, int len) {
+        if (buffer != null) {
+            System.arraycopy(buffer, from, buffer, to, len);
+        } else {
+            // to < from, so copying forward is safe
+            for (int i = 0; i < len; i++) {
+                castByteBuffer.put(to + i, castByteBuffer.get(from + i));
+            }
+        }
+    }
+
+    /**
+     * Encodes chars of <code>s</code> from index <code>i</code> into the
+     * current chunk until the string ends or the position passes
+     * <code>limit</code>. Returns the index of the next char to encode.
+     */
+    private int encodeChars(String s, int i, int limit) {
+        final int len = s.length();
+        final ByteBuffer bb = castByteBuffer;
+        int p = filled;
+        // ASCII fast path; one byte per char, so the run can be bounded
+        // up front
+        if (p <= limit) {
+            final int end = Math.min(len, i + limit - p + 1);
+            if (buffer != null && end - i >= 16) {
+                // chars are copied in blocks, which is faster than charAt
+                // except for short strings
+                final byte[] b = buffer;
+                if (chars == null) {
+                    chars = new char[CHAR_BLOCK_SIZE];
+                }
+                final char[] cs = chars;
+                while (i < end) {
+                    int n = Math.min(end - i, CHAR_BLOCK_SIZE);
+                    s.getChars(i, i + n, cs, 0);
+                    int k = 0;
+                    for (; k < n; k++) {
+                        char c = cs[k];
+                        if (c >= 0x80) {
+                            break;
+                        }
+                        b[p + k] = (byte) c;
+                    }
+                    p += k;
+                    i += k;
+                    if (k < n) {
+                        break;
+                    }
+                }
+            } else {
+                while (i < end) {
+                    char c = s.charAt(i);
+                    if (c >= 0x80) {
+                        break;
+                    }
+                    bb.put(p++, (byte) c);
+                    i++;
+                }
+            }
+        }
+        while (i < len && p <= limit) {
+            char c = s.charAt(i++);
+            if (c < 0x80) {
+                bb.put(p++, (byte) c);
+            } else if (c < 0x800) {
+                bb.put(p++, (byte) (0xc0 | (c >> 6)));
+                bb.put(p++, (byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i < len
+                    && Character.isLowSurrogate(s.charAt(i))) {
+                int cp = Character.toCodePoint(c, s.charAt(i++));
+                bb.put(p++, (byte) (0xf0 | (cp >> 18)));
+                bb.put(p++, (byte) (0x80 | ((cp >> 12) & 0x3f)));
+                bb.put(p++, (byte) (0x80 | ((cp >> 6) & 0x3f)));
+                bb.put(p++, (byte) (0x80 | (cp & 0x3f)));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                bb.put(p++, (byte) '?');
+            } else {
+                bb.put(p++, (byte) (0xe0 | (c >> 12)));
+                bb.put(p++, (byte) (0x80 | ((c >> 6) & 0x3f)));
+                bb.put(p++, (byte) (0x80 | (c & 0x3f)));
+            }
+        }
+        filled = p;
+        return i;
+    }
+
+    private static int utf8Length(String s, int from) {
+        final int len = s.length();
+        int n = 0;
+        for (int i = from; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                n++;
+            } else if (c < 0x800) {
+                n += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                n += 4;
+                i++;
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                n++;
+            } else {
+                n += 3;
+            }
+        }
+        return n;
+    }
+
     @Override
     public void flush() throws IOException {
+        flushFilled();
+    }
+
+    private void flushFilled() throws IOException {
         if (filled > 0) {
-            if (!flushBuffer(buffer, 0, filled)) {
+            if (!flushChunk(castByteBuffer, filled)) {
+                castByteBuffer = null;
                 buffer = null;
             }
             filled = 0;
         }
     }
 
+    /**
+     * Flushes the first <code>len</code> bytes of the current chunk. Returns
+     * true if the chunk may be reused.
+     */
+    protected boolean flushChunk(ByteBuffer chunk, int len) throws IOException {
+        if (buffer != null) {
+            return flushBuffer(buffer, 0, len);
+        }
+        byte[] buf = new byte[len];
+        chunk.position(0);
+        chunk.get(buf);
+        flushBuffer(buf, 0, len);
+        return true;
+    }
+
     protected void flushByteBuffer(ByteBuffer bb) throws IOException {
         if (bb.hasArray()) {
             byte[] array = bb.array();
@@ -0,0 +1,192 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.io;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.io.IOException;
+import java.io.EOFException;
+
+/**
+ * Stream input that reads ahead into an internal window. Head bytes and fixed
+ * length values are served from the window, and raw bodies that fit in it are
+ * passed to {@link BufferReferer} without copying.
+ *
+ * Because of the read-ahead, more bytes than were deserialized may be consumed
+ * from the underlying stream.
+ */
+public class BufferedStreamInput extends AbstractInput {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final InputStream in;
+
+    private final byte[] buffer;
+    private final ByteBuffer castByteBuffer;
+    private final ByteBuffer referByteBuffer;
+    private int position;
+    private int limit;
+    private int nextAdvance;
+
+    public BufferedStreamInput(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public BufferedStreamInput(InputStream in, int bufferSize) {
+        if (bufferSize < 8) {
+            bufferSize = 8;
+        }
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        this.castByteBuffer = ByteBuffer.wrap(buffer);
+        this.referByteBuffer = ByteBuffer.wrap(buffer);
+        this.position = 0;
+        this.limit = 0;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        int remain = len;
+        while (remain > 0) {
+            int avail = limit - position;
+            if (avail > 0) {
+                int n = Math.min(avail, remain);
+                System.arraycopy(buffer, position, b, off, n);
+                incrReadByteCount(n);
+                position += n;
+                off += n;
+                remain -= n;
+            } else if (remain >= buffer.length) {
+                // large body: bypass the window
+                int n = in.read(b, off, remain);
+                if (n <= 0) {
+                    break;
+                }
+                incrReadByteCount(n);
+                off += n;
+                remain -= n;
+            } else if (!fill()) {
+                break;
+            }
+        }
+        if (remain == len && len > 0) {
+            throw new EOFException();
+        }
+        return len - remain;
+    }
+
+    public boolean tryRefer(BufferReferer ref, int len) throws IOException {
+        if (len > buffer.length) {
+            return false;
+        }
+        if (buffer.length - position < len) {
+            compact();
+        }
+        while (limit - position < len) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        referByteBuffer.limit(position + len);
+        referByteBuffer.position(position);
+        ref.refer(referByteBuffer, false);
+        incrReadByteCount(len);
+        position += len;
+        return true;
+    }
+
+    public byte readByte() throws IOException {
+        if (position == limit && !fill()) {
+            throw new EOFException();
+        }
+        incrReadOneByteCount();
+        return buffer[position++];
+    }
+
+    public void advance() {
+        position += nextAdvance;
+        incrReadByteCount(nextAdvance);
+        nextAdvance = 0;
+    }
+
+    private void compact() {
+        int rem = limit - position;
+        System.arraycopy(buffer, position, buffer, 0, rem);
+        position = 0;
+        limit = rem;
+    }
+
+    private boolean fill() throws IOException {
+        if (position == limit) {
+            position = 0;
+            limit = 0;
+        } else if (limit == buffer.length) {
+            compact();
+        }
+        int n = in.read(buffer, limit, buffer.length - limit);
+        if (n <= 0) {
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private void require(int n) throws IOException {
+        if (buffer.length - position < n) {
+            compact();
+        }
+        while (limit - position < n) {
+            if (!fill()) {
+                throw new EOFException();
+            }
+        }
+        nextAdvance = n;
+    }
+
+    public byte getByte() throws IOException {
+        require(1);
+        return buffer[position];
+    }
+
+    public short getShort() throws IOException {
+        require(2);
+        return castByteBuffer.getShort(position);
+    }
+
+    public int getInt() throws IOException {
+        require(4);
+        return castByteBuffer.getInt(position);
+    }
+
+    public long getLong() throws IOException {
+        require(8);
+        return castByteBuffer.getLong(position);
+    }
+
+    public float getFloat() throws IOException {
+        require(4);
+        return castByteBuffer.getFloat(position);
+    }
+
+    public double getDouble() throws IOException {
+        require(8);
+        return castByteBuffer.getDouble(position);
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+}
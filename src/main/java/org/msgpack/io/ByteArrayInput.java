@@ -0,0 +1,132 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.io;
+
+import java.io.IOException;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+
+public class ByteArrayInput extends AbstractInput {
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+    private int nextAdvance;
+
+    private ByteBuffer referByteBuffer;
+
+    public ByteArrayInput(byte[] b) {
+        this(b, 0, b.length);
+    }
+
+    public ByteArrayInput(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        this.buffer = b;
+        this.position = off;
+        this.limit = off + len;
+    }
+
+    public ByteArrayInput(ByteBuffer bb) {
+        this(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+    }
+
+    public int read(byte[] b, int off, int len) throws EOFException {
+        int n = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, n);
+        position += n;
+        incrReadByteCount(n);
+        return n;
+    }
+
+    public boolean tryRefer(BufferReferer ref, int len) throws IOException {
+        if (limit - position < len) {
+            return false;
+        }
+        if (referByteBuffer == null) {
+            referByteBuffer = ByteBuffer.wrap(buffer);
+        }
+        referByteBuffer.limit(position + len);
+        referByteBuffer.position(position);
+        ref.refer(referByteBuffer, false);
+        position += len;
+        incrReadByteCount(len);
+        return true;
+    }
+
+    public byte readByte() throws EOFException {
+        if (position >= limit) {
+            throw new EndOfBufferException();
+        }
+        incrReadOneByteCount();
+        return buffer[position++];
+    }
+
+    public void advance() {
+        position += nextAdvance;
+        incrReadByteCount(nextAdvance);
+        nextAdvance = 0;
+    }
+
+    private int require(int n) throws EOFException {
+        if (limit - position < n) {
+            throw new EndOfBufferException();
+        }
+        nextAdvance = n;
+        return position;
+    }
+
+    public byte getByte() throws EOFException {
+        return buffer[require(1)];
+    }
+
+    public short getShort() throws EOFException {
+        int p = require(2);
+        return (short) ((buffer[p] << 8) | (buffer[p + 1] & 0xff));
+    }
+
+    public int getInt() throws EOFException {
+        int p = require(4);
+        return (buffer[p] << 24) | ((buffer[p + 1] & 0xff) << 16)
+                | ((buffer[p + 2] & 0xff) << 8) | (buffer[p + 3] & 0xff);
+    }
+
+    public long getLong() throws EOFException {
+        int p = require(8);
+        int hi = (buffer[p] << 24) | ((buffer[p + 1] & 0xff) << 16)
+                | ((buffer[p + 2] & 0xff) << 8) | (buffer[p + 3] & 0xff);
+        int lo = (buffer[p + 4] << 24) | ((buffer[p + 5] & 0xff) << 16)
+                | ((buffer[p + 6] & 0xff) << 8) | (buffer[p + 7] & 0xff);
+        return ((long) hi << 32) | (lo & 0xffffffffL);
+    }
+
+    public float getFloat() throws EOFException {
+        return Float.intBitsToFloat(getInt());
+    }
+
+    public double getDouble() throws EOFException {
+        return Double.longBitsToDouble(getLong());
+    }
+
+    public int getRemaining() {
+        return limit - position;
+    }
+
+    public void close() {
+    }
+}
@@ -0,0 +1,42 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocator that creates a new heap buffer for every chunk and leaves
+ * released chunks to the garbage collector.
+ */
+public class HeapBufferAllocator implements BufferAllocator {
+    static final HeapBufferAllocator instance = new HeapBufferAllocator();
+
+    private HeapBufferAllocator() {
+    }
+
+    public ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size);
+    }
+
+    public void release(ByteBuffer buffer) {
+    }
+
+    static public HeapBufferAllocator getInstance() {
+        return instance;
+    }
+}
@@ -19,16 +19,131 @@ package org.msgpack.io;
 
 import java.io.IOException;
 import java.io.EOFException;
-import java.util.LinkedList;
-import java.util.Iterator;
-import java.util.NoSuchElementException;
 import java.nio.ByteBuffer;
 
 public class LinkedBufferInput extends AbstractInput {
-    LinkedList<ByteBuffer> link;
+    static final class Ring {
+        private ByteBuffer[] elements;
+        private boolean[] owned;
+        private int head;
+        private int count;
+
+        Ring() {
+            elements = new ByteBuffer[8];
+            owned = new boolean[8];
+        }
+
+        int size() {
+            return count;
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        ByteBuffer get(int i) {
+            return elements[(head + i) & (elements.length - 1)];
+        }
+
+        ByteBuffer getFirst() {
+            return elements[head];
+        }
+
+        boolean isFirstOwned() {
+            return owned[head];
+        }
+
+        boolean isOwned(int i) {
+            return owned[(head + i) & (elements.length - 1)];
+        }
+
+        ByteBuffer getLast() {
+            return elements[(head + count - 1) & (elements.length - 1)];
+        }
+
+        ByteBuffer peekFirst() {
+            if (count == 0) {
+                return null;
+            }
+            return getFirst();
+        }
+
+        ByteBuffer peekLast() {
+            if (count == 0) {
+                return null;
+            }
+            return getLast();
+        }
+
+        void addLast(ByteBuffer bb) {
+            addLast(bb, false);
+        }
+
+        void addLast(ByteBuffer bb, boolean own) {
+            if (count == elements.length) {
+                grow();
+            }
+            int i = (head + count) & (elements.length - 1);
+            elements[i] = bb;
+            owned[i] = own;
+            count++;
+        }
+
+        void addBeforeLast(ByteBuffer bb) {
+            int i = (head + count - 1) & (elements.length - 1);
+            ByteBuffer last = elements[i];
+            boolean lastOwned = owned[i];
+            elements[i] = bb;
+            owned[i] = false;
+            addLast(last, lastOwned);
+        }
+
+        ByteBuffer removeFirst() {
+            ByteBuffer bb = elements[head];
+            elements[head] = null;
+            owned[head] = false;
+            head = (head + 1) & (elements.length - 1);
+            count--;
+            return bb;
+        }
+
+        ByteBuffer removeLast() {
+            int i = (head + count - 1) & (elements.length - 1);
+            ByteBuffer bb = elements[i];
+            elements[i] = null;
+            owned[i] = false;
+            count--;
+            return bb;
+        }
+
+        void clear() {
+            for (int i = 0; i < count; i++) {
+                elements[(head + i) & (elements.length - 1)] = null;
+                owned[(head + i) & (elements.length - 1)] = false;
+            }
+            head = 0;
+            count = 0;
+        }
+
+        private void grow() {
+            ByteBuffer[] ne = new ByteBuffer[elements.length * 2];
+            boolean[] no = new boolean[elements.length * 2];
+            for (int i = 0; i < count; i++) {
+                ne[i] = get(i);
+                no[i] = isOwned(i);
+            }
+            elements = ne;
+            owned = no;
+            head = 0;
+        }
+    }
+
+    final Ring link;
 
     int writable;
 
+    private int size;
+
     private int nextAdvance;
 
     private byte[] tmpBuffer;
@@ -37,8 +152,20 @@ public class LinkedBufferInput extends AbstractInput {
 
     private final int bufferSize;
 
+    private final BufferAllocator allocator;
+
     public LinkedBufferInput(int bufferSize) {
-        this.link = new LinkedList<ByteBuffer>();
+        this(bufferSize, HeapBufferAllocator.getInstance());
+    }
+
+    /**
+     * Bytes fed by copy are stored in chunks taken from
+     * <code>allocator</code>, which are released once they are consumed or
+     * cleared.
+     */
+    public LinkedBufferInput(int bufferSize, BufferAllocator allocator) {
+        this.allocator = allocator;
+        this.link = new Ring();
         this.writable = -1;
         this.tmpBuffer = new byte[8];
         this.tmpByteBuffer = ByteBuffer.wrap(tmpBuffer);
@@ -55,11 +182,13 @@ public class LinkedBufferInput extends AbstractInput {
             if (len < bb.remaining()) {
                 bb.get(b, off, len);
                 incrReadByteCount(len);
+                size -= len;
                 return olen;
             }
             int rem = bb.remaining();
             bb.get(b, off, rem);
             incrReadByteCount(rem);
+            size -= rem;
             len -= rem;
             off += rem;
             if (!removeFirstLink(bb)) {
@@ -70,13 +199,11 @@ public class LinkedBufferInput extends AbstractInput {
     }
 
     public boolean tryRefer(BufferReferer ref, int len) throws IOException {
-        ByteBuffer bb = null;
-        try {
-            bb = link.getFirst();
-        } catch(NoSuchElementException e) {}
-        if (bb == null) {
+        if (link.isEmpty()) {
             throw new EndOfBufferException();
-        } else if (bb.remaining() < len) {
+        }
+        ByteBuffer bb = link.getFirst();
+        if (bb.remaining() < len) {
             return false;
         }
         boolean success = false;
@@ -84,8 +211,9 @@ public class LinkedBufferInput extends AbstractInput {
         int lim = bb.limit();
         try {
             bb.limit(pos + len);
-            ref.refer(bb, true);
+            ref.refer(bb, !link.isFirstOwned());
             incrReadByteCount(len);
+            size -= len;
             success = true;
         } finally {
             bb.limit(lim);
@@ -102,15 +230,13 @@ public class LinkedBufferInput extends AbstractInput {
     }
 
     public byte readByte() throws EOFException {
-        ByteBuffer bb = null;
-        try {
-            bb = link.getFirst();
-        } catch(NoSuchElementException e) {}
-        if (bb == null || bb.remaining() == 0) {
+        if (size == 0) {
             throw new EndOfBufferException();
         }
+        ByteBuffer bb = link.getFirst();
         byte result = bb.get();
         incrReadOneByteCount();
+        size--;
         if (bb.remaining() == 0) {
             removeFirstLink(bb);
         }
@@ -136,6 +262,7 @@ public class LinkedBufferInput extends AbstractInput {
             }
         }
         incrReadByteCount(nextAdvance);
+        size -= nextAdvance;
         nextAdvance = 0;
     }
 
@@ -147,18 +274,27 @@ public class LinkedBufferInput extends AbstractInput {
                 writable = first.capacity();
                 return false;
             } else {
-                link.removeFirst();
+                releaseFirstLink();
                 return false;
             }
         } else {
-            link.removeFirst();
+            releaseFirstLink();
             return true;
         }
     }
 
+    private void releaseFirstLink() {
+        boolean own = link.isFirstOwned();
+        ByteBuffer bb = link.removeFirst();
+        if (own) {
+            allocator.release(bb);
+        }
+    }
+
     private void requireMore(int n) throws EOFException {
         int off = 0;
-        for (ByteBuffer bb : link) {
+        for (int i = 0; i < link.size(); i++) {
+            ByteBuffer bb = link.get(i);
             if (n <= bb.remaining()) {
                 int pos = bb.position();
                 bb.get(tmpBuffer, off, n);
@@ -176,13 +312,10 @@ public class LinkedBufferInput extends AbstractInput {
     }
 
     private ByteBuffer require(int n) throws EOFException {
-        ByteBuffer bb = null;
-        try {
-            bb = link.getFirst();
-        } catch(NoSuchElementException e) {}
-        if (bb == null) {
+        if (size < n) {
             throw new EndOfBufferException();
         }
+        ByteBuffer bb = link.getFirst();
         if (n <= bb.remaining()) {
             nextAdvance = n;
             return bb;
@@ -237,8 +370,12 @@ public class LinkedBufferInput extends AbstractInput {
 
     public void feed(byte[] b, int off, int len, boolean reference) {
         if (reference) {
+            if (len == 0) {
+                return;
+            }
+            size += len;
             if (writable > 0 && link.getLast().remaining() == 0) {
-                link.add(link.size()-1, ByteBuffer.wrap(b, off, len));
+                link.addBeforeLast(ByteBuffer.wrap(b, off, len));
                 return;
             }
             link.addLast(ByteBuffer.wrap(b, off, len));
@@ -246,10 +383,8 @@ public class LinkedBufferInput extends AbstractInput {
             return;
         }
 
-        ByteBuffer bb = null;
-        try {
-            bb = link.getLast();
-        } catch(NoSuchElementException e) {}
+        size += len;
+        ByteBuffer bb = link.peekLast();
         if (len <= writable) {
             int pos = bb.position();
             bb.position(bb.limit());
@@ -271,12 +406,12 @@ public class LinkedBufferInput extends AbstractInput {
             writable = 0;
         }
 
-        int sz = Math.max(len, bufferSize);
-        ByteBuffer nb = ByteBuffer.allocate(sz);
+        ByteBuffer nb = allocator.allocate(Math.max(len, bufferSize));
+        int sz = nb.capacity();
         nb.put(b, off, len);
         nb.limit(len);
         nb.position(0);
-        link.addLast(nb);
+        link.addLast(nb, true);
         writable = sz - len;
     }
 
@@ -285,9 +420,15 @@ public class LinkedBufferInput extends AbstractInput {
     }
 
     public void feed(ByteBuffer buf, boolean reference) {
+        int rem = buf.remaining();
+
         if (reference) {
+            if (rem == 0) {
+                return;
+            }
+            size += rem;
             if (writable > 0 && link.getLast().remaining() == 0) {
-                link.add(link.size()-1, buf);
+                link.addBeforeLast(buf);
                 return;
             }
             link.addLast(buf);
@@ -295,12 +436,8 @@ public class LinkedBufferInput extends AbstractInput {
             return;
         }
 
-        int rem = buf.remaining();
-
-        ByteBuffer bb = null;
-        try {
-            bb = link.getLast();
-        } catch(NoSuchElementException e) {}
+        size += rem;
+        ByteBuffer bb = link.peekLast();
         if (rem <= writable) {
             int pos = bb.position();
             bb.position(bb.limit());
@@ -323,74 +460,78 @@ public class LinkedBufferInput extends AbstractInput {
             writable = 0;
         }
 
-        int sz = Math.max(rem, bufferSize);
-        ByteBuffer nb = ByteBuffer.allocate(sz);
+        ByteBuffer nb = allocator.allocate(Math.max(rem, bufferSize));
+        int sz = nb.capacity();
         nb.put(buf);
         nb.limit(rem);
         nb.position(0);
-        link.addLast(nb);
+        link.addLast(nb, true);
         writable = sz - rem;
     }
 
     public void clear() {
         if (writable >= 0) {
-            ByteBuffer bb = link.getLast();
-            link.clear();
+            boolean own = link.isOwned(link.size() - 1);
+            ByteBuffer bb = link.removeLast();
+            releaseLinks();
             bb.position(0);
             bb.limit(0);
-            link.addLast(bb);
+            link.addLast(bb, own);
             writable = bb.capacity();
         } else {
-            link.clear();
+            releaseLinks();
             writable = -1;
         }
+        size = 0;
     }
 
-    public void copyReferencedBuffer() {
-        if (link.isEmpty()) {
-            return;
+    private void releaseLinks() {
+        for (int i = 0; i < link.size(); i++) {
+            if (link.isOwned(i)) {
+                allocator.release(link.get(i));
+            }
         }
+        link.clear();
+    }
 
-        int size = 0;
-        for(ByteBuffer bb : link) {
-            size += bb.remaining();
-        }
+    public void copyReferencedBuffer() {
         if (size == 0) {
             return;
         }
 
         if (writable >= 0) {
+            boolean own = link.isOwned(link.size() - 1);
             ByteBuffer last = link.removeLast();
             byte[] copy = new byte[size - last.remaining()];
             int off = 0;
-            for(ByteBuffer bb : link) {
-                int len = bb.remaining();
-                bb.get(copy, off, len);
-                off += len;
+            for (int i = 0; i < link.size(); i++) {
+                ByteBuffer bb = link.get(i);
+                int n = bb.remaining();
+                bb.get(copy, off, n);
+                off += n;
             }
-            link.clear();
-            link.add(ByteBuffer.wrap(copy));
-            link.add(last);
+            releaseLinks();
+            if (copy.length > 0) {
+                link.addLast(ByteBuffer.wrap(copy));
+            }
+            link.addLast(last, own);
 
         } else {
             byte[] copy = new byte[size];
             int off = 0;
-            for(ByteBuffer bb : link) {
-                int len = bb.remaining();
-                bb.get(copy, off, len);
-                off += len;
+            for (int i = 0; i < link.size(); i++) {
+                ByteBuffer bb = link.get(i);
+                int n = bb.remaining();
+                bb.get(copy, off, n);
+                off += n;
             }
-            link.clear();
-            link.add(ByteBuffer.wrap(copy));
+            releaseLinks();
+            link.addLast(ByteBuffer.wrap(copy));
             writable = 0;
         }
     }
 
     public int getSize() {
-        int size = 0;
-        for(ByteBuffer bb : link) {
-            size += bb.remaining();
-        }
         return size;
     }
 
@@ -17,60 +17,275 @@
 //
 package org.msgpack.io;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 
 public final class LinkedBufferOutput extends BufferedOutput {
-    private static final class Link {
-        final byte[] buffer;
-        final int offset;
-        final int size;
-
-        Link(byte[] buffer, int offset, int size) {
-            this.buffer = buffer;
-            this.offset = offset;
-            this.size = size;
-        }
-    }
-
-    private LinkedList<Link> link;
+    private LinkedList<ByteBuffer> link;
     private int size;
+    private final int referenceThreshold;
+    private int linked;
+    private final BufferAllocator allocator;
+    private final ArrayList<ByteBuffer> chunks;
 
     public LinkedBufferOutput(int bufferSize) {
+        this(bufferSize, Integer.MAX_VALUE);
+    }
+
+    public LinkedBufferOutput(int bufferSize, BufferAllocator allocator) {
+        this(bufferSize, Integer.MAX_VALUE, allocator);
+    }
+
+    public LinkedBufferOutput(int bufferSize, int referenceThreshold) {
+        this(bufferSize, referenceThreshold, HeapBufferAllocator.getInstance());
+    }
+
+    /**
+     * Blobs of at least <code>referenceThreshold</code> bytes are linked by
+     * reference instead of being copied, so they must not be modified until
+     * the output is cleared. Chunks are taken from <code>allocator</code>
+     * and released to it by {@link #clear()}, which keeps the current chunk
+     * for the next writes, and by {@link #close()}.
+     */
+    public LinkedBufferOutput(int bufferSize, int referenceThreshold, BufferAllocator allocator) {
         super(bufferSize);
-        link = new LinkedList<Link>();
+        this.referenceThreshold = referenceThreshold;
+        this.allocator = allocator;
+        link = new LinkedList<ByteBuffer>();
+        chunks = new ArrayList<ByteBuffer>();
     }
 
     public byte[] toByteArray() {
-        byte[] bytes = new byte[size + filled];
+        byte[] bytes = new byte[getSize()];
         int off = 0;
-        for (Link l : link) {
-            System.arraycopy(l.buffer, l.offset, bytes, off, l.size);
-            off += l.size;
+        for (ByteBuffer l : link) {
+            int n = l.remaining();
+            l.duplicate().get(bytes, off, n);
+            off += n;
         }
-        if (filled > 0) {
-            System.arraycopy(buffer, 0, bytes, off, filled);
+        if (filled > linked) {
+            unlinkedSlice().get(bytes, off, filled - linked);
         }
         return bytes;
     }
 
+    /**
+     * Returns the written bytes as buffers that share the internal chunks.
+     * The buffers are valid until the next write or {@link #clear()}.
+     */
+    public ByteBuffer[] toByteBuffers() {
+        int n = link.size();
+        ByteBuffer[] bufs = new ByteBuffer[filled > linked ? n + 1 : n];
+        int i = 0;
+        for (ByteBuffer l : link) {
+            bufs[i++] = l.duplicate();
+        }
+        if (filled > linked) {
+            bufs[i] = unlinkedSlice();
+        }
+        return bufs;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] tmp = null;
+        for (ByteBuffer bb : toByteBuffers()) {
+            if (bb.hasArray()) {
+                out.write(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+                continue;
+            }
+            if (tmp == null) {
+                tmp = new byte[bufferSize];
+            }
+            while (bb.hasRemaining()) {
+                int n = Math.min(tmp.length, bb.remaining());
+                bb.get(tmp, 0, n);
+                out.write(tmp, 0, n);
+            }
+        }
+    }
+
+    public long writeTo(GatheringByteChannel channel) throws IOException {
+        ByteBuffer[] bufs = toByteBuffers();
+        long total = 0;
+        int i = 0;
+        while (i < bufs.length) {
+            total += channel.write(bufs, i, bufs.length - i);
+            while (i < bufs.length && !bufs[i].hasRemaining()) {
+                i++;
+            }
+        }
+        return total;
+    }
+
     public int getSize() {
-        return size + filled;
+        return size + filled - linked;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len < referenceThreshold) {
+            super.write(b, off, len);
+            return;
+        }
+        linkFilled();
+        addLink(ByteBuffer.wrap(b, off, len).slice());
+    }
+
+    @Override
+    public void write(ByteBuffer bb) throws IOException {
+        if (bb.remaining() < referenceThreshold) {
+            super.write(bb);
+            return;
+        }
+        linkFilled();
+        addLink(bb.slice());
+        bb.position(bb.limit());
+    }
+
+    @Override
+    protected ByteBuffer allocateChunk(int size) {
+        ByteBuffer bb = allocator.allocate(size);
+        chunks.add(bb);
+        return bb;
+    }
+
+    @Override
+    protected void flushByteBuffer(ByteBuffer bb) throws IOException {
+        addLink(bb.slice());
+        bb.position(bb.limit());
+    }
+
+    @Override
+    protected boolean flushChunk(ByteBuffer chunk, int len) {
+        if (len > linked) {
+            addLink(unlinkedSlice());
+        }
+        linked = 0;
+        return false;
     }
 
     @Override
     protected boolean flushBuffer(byte[] b, int off, int len) {
-        link.add(new Link(b, off, len));
-        size += len;
+        addLink(ByteBuffer.wrap(b, off, len).slice());
         return false;
     }
 
+    /**
+     * Reserves 5 bytes for the header of an array or map whose size is not
+     * known yet and returns their offset. The header is set by
+     * {@link #putContainerHeader(int, boolean, int)}.
+     */
+    public int reserveContainerHeader() throws IOException {
+        int offset = getSize();
+        writeByteAndInt((byte) 0, 0);
+        return offset;
+    }
+
+    /**
+     * Sets the header reserved at <code>offset</code>. If the header is still
+     * in the current chunk, it is shrunk to the smallest form and the bytes
+     * written after it are moved back; otherwise the 32-bit form is used.
+     */
+    public void putContainerHeader(int offset, boolean map, int size) {
+        if (offset >= this.size) {
+            int pos = linked + offset - this.size;
+            int len = containerHeaderSize(size);
+            if (len < 5) {
+                moveBytes(pos + 5, pos + len, filled - pos - 5);
+                filled -= 5 - len;
+            }
+            if (len == 1) {
+                castByteBuffer.put(pos, (byte) ((map ? 0x80 : 0x90) | size));
+            } else if (len == 3) {
+                castByteBuffer.put(pos, (byte) (map ? 0xde : 0xdc));
+                castByteBuffer.putShort(pos + 1, (short) size);
+            } else {
+                castByteBuffer.put(pos, (byte) (map ? 0xdf : 0xdd));
+                castByteBuffer.putInt(pos + 1, size);
+            }
+            return;
+        }
+        // the header has been linked; the links share the chunks, so it is
+        // rewritten in place, searching from the most recent link
+        int start = this.size;
+        Iterator<ByteBuffer> it = link.descendingIterator();
+        while (it.hasNext()) {
+            ByteBuffer l = it.next();
+            start -= l.remaining();
+            if (offset >= start) {
+                int pos = l.position() + offset - start;
+                l.put(pos, (byte) (map ? 0xdf : 0xdd));
+                l.putInt(pos + 1, size);
+                return;
+            }
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    private static int containerHeaderSize(int size) {
+        if (size < 16) {
+            return 1;
+        } else if (size < 65536) {
+            return 3;
+        } else {
+            return 5;
+        }
+    }
+
+    // links the filled part of the current chunk and keeps writing after it
+    private void linkFilled() {
+        if (filled > linked) {
+            addLink(unlinkedSlice());
+            linked = filled;
+        }
+    }
+
+    private ByteBuffer unlinkedSlice() {
+        ByteBuffer bb = castByteBuffer.duplicate();
+        bb.limit(filled);
+        bb.position(linked);
+        return bb.slice();
+    }
+
+    private void addLink(ByteBuffer bb) {
+        link.add(bb);
+        size += bb.remaining();
+    }
+
     public void clear() {
         link.clear();
         size = 0;
         filled = 0;
+        linked = 0;
+        // the current chunk is kept for the next writes; the others go back
+        // to the allocator
+        if (chunks.size() > 1) {
+            for (ByteBuffer bb : chunks) {
+                if (bb != castByteBuffer) {
+                    allocator.release(bb);
+                }
+            }
+            chunks.clear();
+            chunks.add(castByteBuffer);
+        }
     }
 
+    /**
+     * Clears the output and releases all of its chunks to the allocator.
+     */
     @Override
     public void close() {
+        clear();
+        if (castByteBuffer != null) {
+            allocator.release(castByteBuffer);
+            chunks.clear();
+            buffer = null;
+            castByteBuffer = null;
+        }
     }
 }
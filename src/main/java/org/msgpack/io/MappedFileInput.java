@@ -0,0 +1,194 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.EOFException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input that reads a file through memory-mapped regions. The region slides
+ * along the file as it is consumed, so files larger than 2GB can be read.
+ */
+public class MappedFileInput extends AbstractInput {
+    private static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int regionSize;
+
+    private MappedByteBuffer region;
+    private long regionOffset;
+    private int nextAdvance;
+
+    public MappedFileInput(File file) throws IOException {
+        this(file, DEFAULT_REGION_SIZE);
+    }
+
+    public MappedFileInput(File file, int regionSize) throws IOException {
+        // the stream is opened here so that it is closed if the file can't
+        // be mapped
+        FileInputStream in = new FileInputStream(file);
+        try {
+            this.channel = in.getChannel();
+            this.fileSize = channel.size();
+            this.regionSize = Math.max(regionSize, 8);
+            map(0);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        } catch (RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    public MappedFileInput(FileChannel channel, int regionSize) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.regionSize = Math.max(regionSize, 8);
+        map(channel.position());
+    }
+
+    private void map(long offset) throws IOException {
+        long size = Math.min(regionSize, fileSize - offset);
+        region = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        regionOffset = offset;
+    }
+
+    /**
+     * Returns the offset in the file of the next byte to be read.
+     */
+    public long getPosition() {
+        return regionOffset + region.position();
+    }
+
+    private boolean ensure(int n) throws IOException {
+        if (region.remaining() >= n) {
+            return true;
+        }
+        long pos = getPosition();
+        if (fileSize - pos < n) {
+            return false;
+        }
+        map(pos);
+        return true;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        int remain = len;
+        while (remain > 0) {
+            if (!region.hasRemaining()) {
+                if (!ensure(1)) {
+                    break;
+                }
+            }
+            int n = Math.min(region.remaining(), remain);
+            region.get(b, off, n);
+            incrReadByteCount(n);
+            off += n;
+            remain -= n;
+        }
+        if (remain == len && len > 0) {
+            throw new EOFException();
+        }
+        return len - remain;
+    }
+
+    public boolean tryRefer(BufferReferer ref, int len) throws IOException {
+        if (len > regionSize || !ensure(len)) {
+            return false;
+        }
+        boolean success = false;
+        int pos = region.position();
+        int lim = region.limit();
+        try {
+            region.limit(pos + len);
+            ref.refer(region, false);
+            incrReadByteCount(len);
+            success = true;
+        } finally {
+            region.limit(lim);
+            if (success) {
+                region.position(pos + len);
+            } else {
+                region.position(pos);
+            }
+        }
+        return true;
+    }
+
+    public byte readByte() throws IOException {
+        if (!region.hasRemaining() && !ensure(1)) {
+            throw new EOFException();
+        }
+        incrReadOneByteCount();
+        return region.get();
+    }
+
+    public void advance() {
+        region.position(region.position() + nextAdvance);
+        incrReadByteCount(nextAdvance);
+        nextAdvance = 0;
+    }
+
+    private int require(int n) throws IOException {
+        if (!ensure(n)) {
+            throw new EOFException();
+        }
+        nextAdvance = n;
+        return region.position();
+    }
+
+    public byte getByte() throws IOException {
+        int p = require(1);
+        return region.get(p);
+    }
+
+    public short getShort() throws IOException {
+        int p = require(2);
+        return region.getShort(p);
+    }
+
+    public int getInt() throws IOException {
+        int p = require(4);
+        return region.getInt(p);
+    }
+
+    public long getLong() throws IOException {
+        int p = require(8);
+        return region.getLong(p);
+    }
+
+    public float getFloat() throws IOException {
+        int p = require(4);
+        return region.getFloat(p);
+    }
+
+    public double getDouble() throws IOException {
+        int p = require(8);
+        return region.getDouble(p);
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,34 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.io;
+
+import java.io.IOException;
+
+/**
+ * Output that can encode the elements of a primitive array as MessagePack
+ * values directly into its own buffer. The array header is not written.
+ */
+public interface PrimitiveArrayOutput {
+    public void writeIntArray(int[] a, int off, int len) throws IOException;
+
+    public void writeLongArray(long[] a, int off, int len) throws IOException;
+
+    public void writeFloatArray(float[] a, int off, int len) throws IOException;
+
+    public void writeDoubleArray(double[] a, int off, int len) throws IOException;
+}
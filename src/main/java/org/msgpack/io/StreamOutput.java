@@ -117,6 +117,7 @@ public class StreamOutput implements Output {
 
     @Override
     public void flush() throws IOException {
+        out.flush();
     }
 
     @Override
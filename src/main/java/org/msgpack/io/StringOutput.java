@@ -0,0 +1,33 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.io;
+
+import java.io.IOException;
+
+/**
+ * Output that can encode a string as a MessagePack raw directly into its own
+ * buffer, without creating an intermediate byte array.
+ */
+public interface StringOutput {
+    /**
+     * Writes the raw header and the UTF-8 bytes of <code>s</code>. Unpaired
+     * surrogates are written as <code>'?'</code> as
+     * {@link String#getBytes(String)} does.
+     */
+    public void writeRawString(String s) throws IOException;
+}
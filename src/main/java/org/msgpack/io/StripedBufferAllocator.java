@@ -0,0 +1,98 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Allocator that recycles chunks of one size in pools shared by all threads.
+ * Threads are spread over several locked stripes to reduce contention, so a
+ * chunk released by one thread can be reused by another.
+ */
+public class StripedBufferAllocator implements BufferAllocator {
+    private static final int DEFAULT_MAX_POOLED = 64;
+
+    private final int chunkSize;
+    private final int maxPooled;
+    private final boolean direct;
+    private final ArrayDeque<ByteBuffer>[] stripes;
+
+    public StripedBufferAllocator(int chunkSize) {
+        this(chunkSize, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_POOLED);
+    }
+
+    public StripedBufferAllocator(int chunkSize, int stripeCount, int maxPooledPerStripe) {
+        this(chunkSize, stripeCount, maxPooledPerStripe, false);
+    }
+
+    /**
+     * If <code>direct</code> is true, chunks are allocated outside of the
+     * heap with {@link ByteBuffer#allocateDirect(int)}.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public StripedBufferAllocator(int chunkSize, int stripeCount, int maxPooledPerStripe,
+            boolean direct) {
+        if (stripeCount < 1) {
+            stripeCount = 1;
+        }
+        this.chunkSize = chunkSize;
+        this.maxPooled = maxPooledPerStripe;
+        this.direct = direct;
+        this.stripes = new ArrayDeque[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ArrayDeque<ByteBuffer>();
+        }
+    }
+
+    private ArrayDeque<ByteBuffer> stripe() {
+        long id = Thread.currentThread().getId();
+        return stripes[(int) (id % stripes.length)];
+    }
+
+    public ByteBuffer allocate(int size) {
+        if (size <= chunkSize) {
+            ArrayDeque<ByteBuffer> q = stripe();
+            ByteBuffer bb;
+            synchronized (q) {
+                bb = q.pollFirst();
+            }
+            if (bb != null) {
+                bb.clear();
+                return bb;
+            }
+            size = chunkSize;
+        }
+        if (direct) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        return ByteBuffer.allocate(size);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() != chunkSize || buffer.isDirect() != direct) {
+            return;
+        }
+        ArrayDeque<ByteBuffer> q = stripe();
+        synchronized (q) {
+            if (q.size() < maxPooled) {
+                q.addFirst(buffer);
+            }
+        }
+    }
+}
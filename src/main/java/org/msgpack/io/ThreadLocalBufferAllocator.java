@@ -0,0 +1,82 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Allocator that recycles chunks of one size in a per-thread pool. A chunk
+ * released by another thread joins that thread's pool.
+ */
+public class ThreadLocalBufferAllocator implements BufferAllocator {
+    private static final int DEFAULT_MAX_POOLED = 16;
+
+    private final int chunkSize;
+    private final int maxPooled;
+    private final boolean direct;
+    private final ThreadLocal<ArrayDeque<ByteBuffer>> pool = new ThreadLocal<ArrayDeque<ByteBuffer>>() {
+        @Override
+        protected ArrayDeque<ByteBuffer> initialValue() {
+            return new ArrayDeque<ByteBuffer>();
+        }
+    };
+
+    public ThreadLocalBufferAllocator(int chunkSize) {
+        this(chunkSize, DEFAULT_MAX_POOLED);
+    }
+
+    public ThreadLocalBufferAllocator(int chunkSize, int maxPooled) {
+        this(chunkSize, maxPooled, false);
+    }
+
+    /**
+     * If <code>direct</code> is true, chunks are allocated outside of the
+     * heap with {@link ByteBuffer#allocateDirect(int)}.
+     */
+    public ThreadLocalBufferAllocator(int chunkSize, int maxPooled, boolean direct) {
+        this.chunkSize = chunkSize;
+        this.maxPooled = maxPooled;
+        this.direct = direct;
+    }
+
+    public ByteBuffer allocate(int size) {
+        if (size <= chunkSize) {
+            ByteBuffer bb = pool.get().pollFirst();
+            if (bb != null) {
+                bb.clear();
+                return bb;
+            }
+            size = chunkSize;
+        }
+        if (direct) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        return ByteBuffer.allocate(size);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() != chunkSize || buffer.isDirect() != direct) {
+            return;
+        }
+        ArrayDeque<ByteBuffer> q = pool.get();
+        if (q.size() < maxPooled) {
+            q.addFirst(buffer);
+        }
+    }
+}
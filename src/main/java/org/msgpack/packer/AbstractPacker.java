@@ -173,6 +173,73 @@ public abstract class AbstractPacker implements Packer {
         return this;
     }
 
+    @Override
+    public Packer write(int[] o, int off, int len) throws IOException {
+        if (o == null) {
+            writeNil();
+            return this;
+        }
+        checkRange(o.length, off, len);
+        writeArrayBegin(len);
+        for (int i = off; i < off + len; i++) {
+            writeInt(o[i]);
+        }
+        writeArrayEnd();
+        return this;
+    }
+
+    @Override
+    public Packer write(long[] o, int off, int len) throws IOException {
+        if (o == null) {
+            writeNil();
+            return this;
+        }
+        checkRange(o.length, off, len);
+        writeArrayBegin(len);
+        for (int i = off; i < off + len; i++) {
+            writeLong(o[i]);
+        }
+        writeArrayEnd();
+        return this;
+    }
+
+    @Override
+    public Packer write(float[] o, int off, int len) throws IOException {
+        if (o == null) {
+            writeNil();
+            return this;
+        }
+        checkRange(o.length, off, len);
+        writeArrayBegin(len);
+        for (int i = off; i < off + len; i++) {
+            writeFloat(o[i]);
+        }
+        writeArrayEnd();
+        return this;
+    }
+
+    @Override
+    public Packer write(double[] o, int off, int len) throws IOException {
+        if (o == null) {
+            writeNil();
+            return this;
+        }
+        checkRange(o.length, off, len);
+        writeArrayBegin(len);
+        for (int i = off; i < off + len; i++) {
+            writeDouble(o[i]);
+        }
+        writeArrayEnd();
+        return this;
+    }
+
+    // rejects a bad range before anything is written
+    static void checkRange(int length, int off, int len) {
+        if (off < 0 || len < 0 || off > length - len) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
     @Override
     public Packer write(ByteBuffer o) throws IOException {
         if (o == null) {
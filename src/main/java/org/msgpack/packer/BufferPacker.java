@@ -17,6 +17,11 @@
 //
 package org.msgpack.packer;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
 /**
  * This class is buffer-specific serializer.
  * 
@@ -28,5 +33,30 @@ public interface BufferPacker extends Packer {
 
     public byte[] toByteArray();
 
+    /**
+     * Returns the serialized bytes as a sequence of buffers without copying
+     * them into a single array. The buffers share memory with this packer and
+     * are valid until the next write or {@link #clear()}.
+     *
+     * @since 0.6.8
+     */
+    public ByteBuffer[] toByteBuffers();
+
+    /**
+     * Writes the serialized bytes to the stream chunk by chunk.
+     *
+     * @since 0.6.8
+     */
+    public void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * Writes the serialized bytes to the channel with gathering writes and
+     * returns the number of bytes written. The channel is expected to be
+     * blocking; use {@link #toByteBuffers()} for non-blocking channels.
+     *
+     * @since 0.6.8
+     */
+    public long writeTo(GatheringByteChannel channel) throws IOException;
+
     public void clear();
 }
@@ -0,0 +1,138 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.packer;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded table from strings to their serialized form, the raw header
+ * followed by the UTF-8 bytes. Packers with a cache write a cached string
+ * with a single copy instead of encoding it again.
+ * 
+ * By default only map keys are cached, so that unique values do not evict
+ * the keys. Each string maps to one slot and replaces the entry already
+ * there. A cache is thread-safe and may be shared by the packers of a
+ * {@link org.msgpack.MessagePack} instance.
+ * 
+ * @since 0.6.8
+ */
+public final class EncodedStringCache {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final class Entry {
+        final String string;
+        final byte[] encoded;
+
+        Entry(String string, byte[] encoded) {
+            this.string = string;
+            this.encoded = encoded;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> table;
+    private final int maxLength;
+    private final boolean keysOnly;
+
+    public EncodedStringCache() {
+        this(1024, 32, true);
+    }
+
+    /**
+     * @param capacity
+     *            number of slots
+     * @param maxLength
+     *            maximum length in chars of cached strings
+     * @param keysOnly
+     *            if true, only map keys are looked up
+     */
+    public EncodedStringCache(int capacity, int maxLength, boolean keysOnly) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.table = new AtomicReferenceArray<Entry>(size);
+        this.maxLength = maxLength;
+        this.keysOnly = keysOnly;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public boolean isKeysOnly() {
+        return keysOnly;
+    }
+
+    /**
+     * Returns the raw header and the UTF-8 bytes of <code>s</code>. The
+     * returned array must not be modified.
+     */
+    public byte[] get(String s) {
+        int h = s.hashCode();
+        int i = (h ^ (h >>> 16)) & (table.length() - 1);
+        Entry e = table.get(i);
+        if (e != null && (e.string == s || e.string.equals(s))) {
+            return e.encoded;
+        }
+        byte[] encoded = encode(s);
+        table.set(i, new Entry(s, encoded));
+        return encoded;
+    }
+
+    // returns the cached bytes of s without adding them, or null
+    byte[] peek(String s) {
+        int h = s.hashCode();
+        Entry e = table.get((h ^ (h >>> 16)) & (table.length() - 1));
+        return e != null && e.string.equals(s) ? e.encoded : null;
+    }
+
+    public void clear() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, null);
+        }
+    }
+
+    private static byte[] encode(String s) {
+        byte[] b = s.getBytes(UTF8);
+        int len = b.length;
+        byte[] encoded;
+        int off;
+        if (len < 32) {
+            encoded = new byte[len + 1];
+            encoded[0] = (byte) (0xa0 | len);
+            off = 1;
+        } else if (len < 65536) {
+            encoded = new byte[len + 3];
+            encoded[0] = (byte) 0xda;
+            encoded[1] = (byte) (len >> 8);
+            encoded[2] = (byte) len;
+            off = 3;
+        } else {
+            encoded = new byte[len + 5];
+            encoded[0] = (byte) 0xdb;
+            encoded[1] = (byte) (len >> 24);
+            encoded[2] = (byte) (len >> 16);
+            encoded[3] = (byte) (len >> 8);
+            encoded[4] = (byte) len;
+            off = 5;
+        }
+        System.arraycopy(b, 0, encoded, off, len);
+        return encoded;
+    }
+}
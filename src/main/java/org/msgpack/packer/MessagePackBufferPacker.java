@@ -17,7 +17,13 @@
 //
 package org.msgpack.packer;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
 import org.msgpack.MessagePack;
+import org.msgpack.MessageTypeException;
 import org.msgpack.io.LinkedBufferOutput;
 
 public class MessagePackBufferPacker extends MessagePackPacker implements BufferPacker {
@@ -28,7 +34,73 @@ public class MessagePackBufferPacker extends MessagePackPacker implements Buffer
     }
 
     public MessagePackBufferPacker(MessagePack msgpack, int bufferSize) {
-        super(msgpack, new LinkedBufferOutput(bufferSize));
+        super(msgpack, new LinkedBufferOutput(bufferSize, msgpack.getBufferAllocator()));
+    }
+
+    public MessagePackBufferPacker(MessagePack msgpack, int bufferSize, int referenceThreshold) {
+        super(msgpack, new LinkedBufferOutput(bufferSize, referenceThreshold,
+                msgpack.getBufferAllocator()));
+    }
+
+    /**
+     * Begins an array whose size is not known yet. A header of the largest
+     * form is reserved and its size is set by {@link #writeArrayEnd()}; it
+     * is shrunk then if the array still lies in the current chunk.
+     *
+     * @since 0.6.8
+     */
+    public Packer writeArrayBegin() throws IOException {
+        int offset = ((LinkedBufferOutput) out).reserveContainerHeader();
+        reduceCount();
+        stack.pushOpenArray(offset);
+        beginContainer();
+        return this;
+    }
+
+    /**
+     * Begins a map whose size is not known yet. A header of the largest form
+     * is reserved and its size is set by {@link #writeMapEnd()}; it is
+     * shrunk then if the map still lies in the current chunk.
+     *
+     * @since 0.6.8
+     */
+    public Packer writeMapBegin() throws IOException {
+        int offset = ((LinkedBufferOutput) out).reserveContainerHeader();
+        reduceCount();
+        stack.pushOpenMap(offset);
+        beginContainer();
+        return this;
+    }
+
+    @Override
+    public Packer writeArrayEnd(boolean check) throws IOException {
+        if (!stack.topIsArray() || !stack.topIsOpen()) {
+            return super.writeArrayEnd(check);
+        }
+        int offset = stack.getTopOffset();
+        int size = getWritten();
+        endContainer();
+        ((LinkedBufferOutput) out).putContainerHeader(offset, false, size);
+        return this;
+    }
+
+    @Override
+    public Packer writeMapEnd(boolean check) throws IOException {
+        if (!stack.topIsMap() || !stack.topIsOpen()) {
+            return super.writeMapEnd(check);
+        }
+        if ((getWritten() & 1) != 0) {
+            if (check) {
+                throw new MessageTypeException(
+                        "writeMapEnd(check=true) is called but the last key has no value");
+            }
+            writeNil();
+        }
+        int offset = stack.getTopOffset();
+        int size = getWritten() / 2;
+        endContainer();
+        ((LinkedBufferOutput) out).putContainerHeader(offset, true, size);
+        return this;
     }
 
     public int getBufferSize() {
@@ -39,6 +111,18 @@ public class MessagePackBufferPacker extends MessagePackPacker implements Buffer
         return ((LinkedBufferOutput) out).toByteArray();
     }
 
+    public ByteBuffer[] toByteBuffers() {
+        return ((LinkedBufferOutput) out).toByteBuffers();
+    }
+
+    public void writeTo(OutputStream stream) throws IOException {
+        ((LinkedBufferOutput) out).writeTo(stream);
+    }
+
+    public long writeTo(GatheringByteChannel channel) throws IOException {
+        return ((LinkedBufferOutput) out).writeTo(channel);
+    }
+
     public void clear() {
         reset();
         ((LinkedBufferOutput) out).clear();
@@ -18,27 +18,121 @@
 package org.msgpack.packer;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.math.BigInteger;
+import java.nio.charset.Charset;
 import org.msgpack.io.Output;
+import org.msgpack.io.StringOutput;
+import org.msgpack.io.PrimitiveArrayOutput;
 import org.msgpack.io.StreamOutput;
+import org.msgpack.io.BufferedStreamOutput;
 import org.msgpack.MessagePack;
 import org.msgpack.MessageTypeException;
 
 public class MessagePackPacker extends AbstractPacker {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     protected final Output out;
 
-    private PackerStack stack = new PackerStack();
+    private final StringOutput stringOut;
+
+    private final PrimitiveArrayOutput arrayOut;
+
+    private final EncodedStringCache stringCache;
+
+    // package-private for the arrays and maps of unknown size of
+    // MessagePackBufferPacker
+    PackerStack stack = new PackerStack();
+
+    private boolean unchecked;
+
+    // in the unchecked mode, the number of values written in the innermost
+    // array or map; the numbers of the enclosing ones are saved in
+    // consumedStack while it is open
+    private int consumed;
+    private final int[] consumedStack = new int[PackerStack.MAX_STACK_SIZE];
 
     public MessagePackPacker(MessagePack msgpack, OutputStream stream) {
         this(msgpack, new StreamOutput(stream));
     }
 
+    public MessagePackPacker(MessagePack msgpack, OutputStream stream, int bufferSize) {
+        this(msgpack, new BufferedStreamOutput(stream, bufferSize));
+    }
+
     protected MessagePackPacker(MessagePack msgpack, Output out) {
         super(msgpack);
         this.out = out;
+        this.stringOut = out instanceof StringOutput ? (StringOutput) out : null;
+        this.arrayOut = out instanceof PrimitiveArrayOutput ? (PrimitiveArrayOutput) out : null;
+        this.stringCache = msgpack != null ? msgpack.getEncodedStringCache() : null;
+    }
+
+    /**
+     * Enables or disables the unchecked mode. In the unchecked mode the
+     * values written are not checked one by one against the size of the
+     * enclosing array or map; they are only counted, and the count is
+     * compared with the size by writeArrayEnd and writeMapEnd. Missing
+     * elements are padded with nil or rejected as in the checked mode, and
+     * writing more elements than the size is rejected there. The nesting of
+     * the begin and end calls is still checked.
+     *
+     * The mode should be changed between top-level values.
+     *
+     * @since 0.6.8
+     */
+    public void setUnchecked(boolean unchecked) {
+        this.unchecked = unchecked;
+    }
+
+    /**
+     * @since 0.6.8
+     */
+    public boolean isUnchecked() {
+        return unchecked;
+    }
+
+    void reduceCount() {
+        if (unchecked) {
+            consumed++;
+        } else {
+            stack.reduceCount();
+        }
+    }
+
+    private boolean isMapKey() {
+        if (unchecked) {
+            return stack.topIsMap() && (consumed & 1) == 0;
+        }
+        return stack.topIsMapKey();
+    }
+
+    // number of elements of the innermost array or map of known size not
+    // written yet
+    private int getRemaining() {
+        return unchecked ? stack.getTopCount() - consumed : stack.getTopCount();
+    }
+
+    // number of elements written in the innermost array or map of unknown
+    // size, whose count goes down from zero
+    int getWritten() {
+        return unchecked ? consumed : -stack.getTopCount();
+    }
+
+    // opens the array or map just pushed
+    void beginContainer() {
+        if (unchecked) {
+            consumedStack[stack.getDepth()] = consumed;
+            consumed = 0;
+        }
+    }
+
+    void endContainer() {
+        if (unchecked) {
+            consumed = consumedStack[stack.getDepth()];
+        }
+        stack.pop();
     }
 
     @Override
@@ -48,7 +142,7 @@ public class MessagePackPacker extends AbstractPacker {
         } else {
             out.writeByte(d);
         }
-        stack.reduceCount();
+        reduceCount();
     }
 
     @Override
@@ -73,7 +167,7 @@ public class MessagePackPacker extends AbstractPacker {
                 out.writeByteAndShort((byte) 0xcd, d);
             }
         }
-        stack.reduceCount();
+        reduceCount();
     }
 
     @Override
@@ -104,7 +198,7 @@ public class MessagePackPacker extends AbstractPacker {
                 out.writeByteAndInt((byte) 0xce, d);
             }
         }
-        stack.reduceCount();
+        reduceCount();
     }
 
     @Override
@@ -149,18 +243,18 @@ public class MessagePackPacker extends AbstractPacker {
                 }
             }
         }
-        stack.reduceCount();
+        reduceCount();
     }
 
     @Override
     protected void writeBigInteger(BigInteger d) throws IOException {
         if (d.bitLength() <= 63) {
+            // writeLong reduces the count
             writeLong(d.longValue());
-            stack.reduceCount();
         } else if (d.bitLength() == 64 && d.signum() == 1) {
             // unsigned 64
             out.writeByteAndLong((byte) 0xcf, d.longValue());
-            stack.reduceCount();
+            reduceCount();
         } else {
             throw new MessageTypeException(
                     "MessagePack can't serialize BigInteger larger than (2^64)-1");
@@ -170,13 +264,13 @@ public class MessagePackPacker extends AbstractPacker {
     @Override
     protected void writeFloat(float d) throws IOException {
         out.writeByteAndFloat((byte) 0xca, d);
-        stack.reduceCount();
+        reduceCount();
     }
 
     @Override
     protected void writeDouble(double d) throws IOException {
         out.writeByteAndDouble((byte) 0xcb, d);
-        stack.reduceCount();
+        reduceCount();
     }
 
     @Override
@@ -188,7 +282,7 @@ public class MessagePackPacker extends AbstractPacker {
             // false
             out.writeByte((byte) 0xc2);
         }
-        stack.reduceCount();
+        reduceCount();
     }
 
     @Override
@@ -202,7 +296,7 @@ public class MessagePackPacker extends AbstractPacker {
             out.writeByteAndInt((byte) 0xdb, len);
         }
         out.write(b, off, len);
-        stack.reduceCount();
+        reduceCount();
     }
 
     @Override
@@ -221,31 +315,45 @@ public class MessagePackPacker extends AbstractPacker {
         } finally {
             bb.position(pos);
         }
-        stack.reduceCount();
+        reduceCount();
     }
 
     @Override
     protected void writeString(String s) throws IOException {
-        byte[] b;
-        try {
-            // TODO encoding error?
-            b = s.getBytes("UTF-8");
-        } catch (UnsupportedEncodingException ex) {
-            throw new MessageTypeException(ex);
+        if (stringCache != null && s.length() <= stringCache.getMaxLength()
+                && (!stringCache.isKeysOnly() || isMapKey())) {
+            byte[] b = stringCache.get(s);
+            out.write(b, 0, b.length);
+            reduceCount();
+            return;
+        }
+        if (stringOut != null) {
+            stringOut.writeRawString(s);
+            reduceCount();
+            return;
         }
+        byte[] b = s.getBytes(UTF8);
+        // writeByteArray reduces the count
         writeByteArray(b, 0, b.length);
-        stack.reduceCount();
     }
 
     @Override
     public Packer writeNil() throws IOException {
         out.writeByte((byte) 0xc0);
-        stack.reduceCount();
+        reduceCount();
         return this;
     }
 
     @Override
     public Packer writeArrayBegin(int size) throws IOException {
+        writeArrayHeader(size);
+        reduceCount();
+        stack.pushArray(size);
+        beginContainer();
+        return this;
+    }
+
+    private void writeArrayHeader(int size) throws IOException {
         // TODO check size < 0?
         if (size < 16) {
             // FixArray
@@ -255,8 +363,54 @@ public class MessagePackPacker extends AbstractPacker {
         } else {
             out.writeByteAndInt((byte) 0xdd, size);
         }
-        stack.reduceCount();
-        stack.pushArray(size);
+    }
+
+    // the elements are written as a whole without being pushed on the stack
+    @Override
+    public Packer write(int[] o, int off, int len) throws IOException {
+        if (o == null || arrayOut == null) {
+            return super.write(o, off, len);
+        }
+        checkRange(o.length, off, len);
+        writeArrayHeader(len);
+        arrayOut.writeIntArray(o, off, len);
+        reduceCount();
+        return this;
+    }
+
+    @Override
+    public Packer write(long[] o, int off, int len) throws IOException {
+        if (o == null || arrayOut == null) {
+            return super.write(o, off, len);
+        }
+        checkRange(o.length, off, len);
+        writeArrayHeader(len);
+        arrayOut.writeLongArray(o, off, len);
+        reduceCount();
+        return this;
+    }
+
+    @Override
+    public Packer write(float[] o, int off, int len) throws IOException {
+        if (o == null || arrayOut == null) {
+            return super.write(o, off, len);
+        }
+        checkRange(o.length, off, len);
+        writeArrayHeader(len);
+        arrayOut.writeFloatArray(o, off, len);
+        reduceCount();
+        return this;
+    }
+
+    @Override
+    public Packer write(double[] o, int off, int len) throws IOException {
+        if (o == null || arrayOut == null) {
+            return super.write(o, off, len);
+        }
+        checkRange(o.length, off, len);
+        writeArrayHeader(len);
+        arrayOut.writeDoubleArray(o, off, len);
+        reduceCount();
         return this;
     }
 
@@ -267,7 +421,11 @@ public class MessagePackPacker extends AbstractPacker {
                     "writeArrayEnd() is called but writeArrayBegin() is not called");
         }
 
-        int remain = stack.getTopCount();
+        int remain = getRemaining();
+        if (remain < 0) {
+            throw new MessageTypeException(
+                    "writeArrayEnd() is called but more elements than the size of the array have been written: " + -remain);
+        }
         if (remain > 0) {
             if (check) {
                 throw new MessageTypeException(
@@ -277,7 +435,7 @@ public class MessagePackPacker extends AbstractPacker {
                 writeNil();
             }
         }
-        stack.pop();
+        endContainer();
         return this;
     }
 
@@ -292,8 +450,9 @@ public class MessagePackPacker extends AbstractPacker {
         } else {
             out.writeByteAndInt((byte) 0xdf, size);
         }
-        stack.reduceCount();
+        reduceCount();
         stack.pushMap(size);
+        beginContainer();
         return this;
     }
 
@@ -304,7 +463,11 @@ public class MessagePackPacker extends AbstractPacker {
                     "writeMapEnd() is called but writeMapBegin() is not called");
         }
 
-        int remain = stack.getTopCount();
+        int remain = getRemaining();
+        if (remain < 0) {
+            throw new MessageTypeException(
+                    "writeMapEnd() is called but more elements than the size of the map have been written: " + -remain);
+        }
         if (remain > 0) {
             if (check) {
                 throw new MessageTypeException(
@@ -314,12 +477,13 @@ public class MessagePackPacker extends AbstractPacker {
                 writeNil();
             }
         }
-        stack.pop();
+        endContainer();
         return this;
     }
 
     public void reset() {
         stack.clear();
+        consumed = 0;
     }
 
     @Override
@@ -66,6 +66,29 @@ public interface Packer extends Closeable, Flushable {
 
     public Packer write(byte[] o, int off, int len) throws IOException;
 
+    /**
+     * Writes <code>len</code> elements of <code>o</code> starting at
+     * <code>off</code> as an array, or nil if <code>o</code> is null.
+     * 
+     * @since 0.6.8
+     */
+    public Packer write(int[] o, int off, int len) throws IOException;
+
+    /**
+     * @since 0.6.8
+     */
+    public Packer write(long[] o, int off, int len) throws IOException;
+
+    /**
+     * @since 0.6.8
+     */
+    public Packer write(float[] o, int off, int len) throws IOException;
+
+    /**
+     * @since 0.6.8
+     */
+    public Packer write(double[] o, int off, int len) throws IOException;
+
     public Packer write(ByteBuffer o) throws IOException;
 
     public Packer write(String o) throws IOException;
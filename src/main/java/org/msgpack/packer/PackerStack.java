@@ -23,6 +23,8 @@ public final class PackerStack {
     private int top;
     private byte[] types;
     private int[] counts;
+    // offset of the header of an array or map of unknown size, or -1
+    private int[] offsets;
 
     public static final int MAX_STACK_SIZE = 128;
 
@@ -34,23 +36,50 @@ public final class PackerStack {
         this.top = 0;
         this.types = new byte[MAX_STACK_SIZE];
         this.counts = new int[MAX_STACK_SIZE];
+        this.offsets = new int[MAX_STACK_SIZE];
+        this.offsets[0] = -1;
         this.types[0] = TYPE_INVALID;
     }
 
     public void pushArray(int size) {
-        top++;
-        types[top] = TYPE_ARRAY;
-        counts[top] = size;
+        push(TYPE_ARRAY, size);
     }
 
     public void pushMap(int size) {
+        push(TYPE_MAP, size * 2);
+    }
+
+    /**
+     * Pushes an array whose size is not known yet. Its count goes down from
+     * zero as elements are written.
+     */
+    public void pushOpenArray(int offset) {
+        push(TYPE_ARRAY, 0);
+        offsets[top] = offset;
+    }
+
+    /**
+     * Pushes a map whose size is not known yet. Its count goes down from zero
+     * as keys and values are written.
+     */
+    public void pushOpenMap(int offset) {
+        push(TYPE_MAP, 0);
+        offsets[top] = offset;
+    }
+
+    private void push(byte type, int count) {
+        if (top + 1 >= MAX_STACK_SIZE) {
+            throw new MessageTypeException(
+                    "Nesting of arrays and maps is deeper than " + (MAX_STACK_SIZE - 1));
+        }
         top++;
-        types[top] = TYPE_MAP;
-        counts[top] = size * 2;
+        types[top] = type;
+        counts[top] = count;
+        offsets[top] = -1;
     }
 
     public void checkCount() {
-        if (counts[top] > 0) {
+        if (counts[top] > 0 || offsets[top] >= 0) {
             return;
         }
 
@@ -84,6 +113,14 @@ public final class PackerStack {
         return counts[top];
     }
 
+    public boolean topIsOpen() {
+        return offsets[top] >= 0;
+    }
+
+    public int getTopOffset() {
+        return offsets[top];
+    }
+
     public boolean topIsArray() {
         return types[top] == TYPE_ARRAY;
     }
@@ -92,6 +129,10 @@ public final class PackerStack {
         return types[top] == TYPE_MAP;
     }
 
+    public boolean topIsMapKey() {
+        return types[top] == TYPE_MAP && (counts[top] & 1) == 0;
+    }
+
     public void clear() {
         top = 0;
     }
@@ -25,8 +25,18 @@ import org.msgpack.unpacker.Unpacker;
 
 public class AnyTemplate<T> extends AbstractTemplate<T> {
 
+    private static final int INLINE_CACHE_SIZE = 4;
+
+    private static final InlineCache EMPTY_INLINE_CACHE =
+            new InlineCache(-1, new Class<?>[0], new Template<?>[0]);
+
     private TemplateRegistry registry;
 
+    // templates of the classes written last, so that elements of the same
+    // few classes don't need a registry lookup. The cache is replaced as a
+    // whole; once it is full, other classes are looked up every time.
+    private volatile InlineCache inlineCache = EMPTY_INLINE_CACHE;
+
     public AnyTemplate(TemplateRegistry registry) {
         this.registry = registry;
     }
@@ -39,7 +49,49 @@ public class AnyTemplate<T> extends AbstractTemplate<T> {
             }
             pk.writeNil();
         } else {
-            registry.lookup(target.getClass()).write(pk, target);
+            lookup(target.getClass()).write(pk, target);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Template lookup(Class<?> targetClass) {
+        InlineCache ic = inlineCache;
+        int generation = registry.getGeneration();
+        if (ic.generation == generation) {
+            Class<?>[] classes = ic.classes;
+            for (int i = 0; i < classes.length; i++) {
+                if (classes[i] == targetClass) {
+                    return ic.templates[i];
+                }
+            }
+            if (classes.length == INLINE_CACHE_SIZE) {
+                return registry.lookup(targetClass);
+            }
+        } else {
+            // templates were registered or unregistered
+            ic = EMPTY_INLINE_CACHE;
+        }
+        Template tmpl = registry.lookup(targetClass);
+        int n = ic.classes.length;
+        Class<?>[] classes = new Class<?>[n + 1];
+        Template<?>[] templates = new Template<?>[n + 1];
+        System.arraycopy(ic.classes, 0, classes, 0, n);
+        System.arraycopy(ic.templates, 0, templates, 0, n);
+        classes[n] = targetClass;
+        templates[n] = tmpl;
+        inlineCache = new InlineCache(generation, classes, templates);
+        return tmpl;
+    }
+
+    private static final class InlineCache {
+        final int generation;
+        final Class<?>[] classes;
+        final Template<?>[] templates;
+
+        InlineCache(int generation, Class<?>[] classes, Template<?>[] templates) {
+            this.generation = generation;
+            this.classes = classes;
+            this.templates = templates;
         }
     }
 
@@ -35,11 +35,7 @@ public class IntegerArrayTemplate extends AbstractTemplate<int[]> {
             pk.writeNil();
             return;
         }
-        pk.writeArrayBegin(target.length);
-        for (int a : target) {
-            pk.write(a);
-        }
-        pk.writeArrayEnd();
+        pk.write(target, 0, target.length);
     }
 
     public int[] read(Unpacker u, int[] to, boolean required)
@@ -47,18 +43,7 @@ public class IntegerArrayTemplate extends AbstractTemplate<int[]> {
         if (!required && u.trySkipNil()) {
             return null;
         }
-        int n = u.readArrayBegin();
-        int[] array;
-        if (to != null && to.length == n) {
-            array = to;
-        } else {
-            array = new int[n];
-        }
-        for (int i = 0; i < n; i++) {
-            array[i] = u.readInt();
-        }
-        u.readArrayEnd();
-        return array;
+        return u.readIntArray(to);
     }
 
     static public IntegerArrayTemplate getInstance() {
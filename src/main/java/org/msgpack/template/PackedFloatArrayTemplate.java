@@ -0,0 +1,77 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.template;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.msgpack.packer.Packer;
+import org.msgpack.unpacker.Unpacker;
+import org.msgpack.MessageTypeException;
+
+/**
+ * Template of <code>float[]</code> serialized as a raw of big-endian 4-byte
+ * values.
+ * 
+ * @see org.msgpack.annotation.Packed
+ * @since 0.6.8
+ */
+public class PackedFloatArrayTemplate extends AbstractTemplate<float[]> {
+    private PackedFloatArrayTemplate() {
+    }
+
+    public void write(Packer pk, float[] target, boolean required)
+            throws IOException {
+        if (target == null) {
+            if (required) {
+                throw new MessageTypeException("Attempted to write null");
+            }
+            pk.writeNil();
+            return;
+        }
+        if (target.length > Integer.MAX_VALUE / 4) {
+            throw new MessageTypeException("Too large array to pack: " + target.length);
+        }
+        byte[] raw = new byte[target.length * 4];
+        ByteBuffer.wrap(raw).asFloatBuffer().put(target);
+        pk.write(raw);
+    }
+
+    public float[] read(Unpacker u, float[] to, boolean required)
+            throws IOException {
+        if (!required && u.trySkipNil()) {
+            return null;
+        }
+        byte[] raw = u.readByteArray();
+        if (raw.length % 4 != 0) {
+            throw new MessageTypeException(
+                    "Size of packed float array is not a multiple of 4: " + raw.length);
+        }
+        int n = raw.length / 4;
+        if (to == null || to.length != n) {
+            to = new float[n];
+        }
+        ByteBuffer.wrap(raw).asFloatBuffer().get(to);
+        return to;
+    }
+
+    static public PackedFloatArrayTemplate getInstance() {
+        return instance;
+    }
+
+    static final PackedFloatArrayTemplate instance = new PackedFloatArrayTemplate();
+}
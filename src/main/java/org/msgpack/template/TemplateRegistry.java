@@ -22,8 +22,11 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -59,16 +62,35 @@ import org.msgpack.template.builder.TemplateBuilder;
 import org.msgpack.template.builder.TemplateBuilderChain;
 import org.msgpack.type.Value;
 
+/**
+ * Lookups don't take a lock: templates are kept in concurrent maps. A
+ * template is built once per class at a time; other threads looking the
+ * class up wait for that build, while lookups made by the threads building
+ * templates get a {@link TemplateReference}, so that recursive types and
+ * concurrent builds of types referring each other don't deadlock.
+ */
 @SuppressWarnings({ "rawtypes", "unchecked" })
 public class TemplateRegistry {
 
-    private TemplateRegistry parent = null;
+    private final TemplateRegistry parent;
 
-    private TemplateBuilderChain chain;
+    private volatile TemplateBuilderChain chain;
 
     Map<Type, Template<Type>> cache;
 
-    private Map<Type, GenericTemplate> genericCache;
+    private final Map<Type, GenericTemplate> genericCache;
+
+    private final ConcurrentMap<Type, Build> building;
+
+    private static final int MAX_PARAMETERIZED_CACHE_SIZE = 1024;
+
+    // templates built for parameterized types such as List<Foo>, keyed by
+    // the types themselves, which are compared structurally. An entry is
+    // valid while the generation it was built in is current; any register
+    // or unregister starts a new generation.
+    private final ConcurrentMap<Type, ParameterizedEntry> parameterizedCache;
+
+    private final AtomicInteger generation = new AtomicInteger();
 
     /**
      * create <code>TemplateRegistry</code> object of root.
@@ -76,8 +98,10 @@ public class TemplateRegistry {
     private TemplateRegistry() {
         parent = null;
         chain = createTemplateBuilderChain();
-        genericCache = new HashMap<Type, GenericTemplate>();
-        cache = new HashMap<Type, Template<Type>>();
+        genericCache = new ConcurrentHashMap<Type, GenericTemplate>();
+        cache = new ConcurrentHashMap<Type, Template<Type>>();
+        building = new ConcurrentHashMap<Type, Build>();
+        parameterizedCache = new ConcurrentHashMap<Type, ParameterizedEntry>();
         registerTemplates();
         cache = Collections.unmodifiableMap(cache);
     }
@@ -93,8 +117,10 @@ public class TemplateRegistry {
             parent = new TemplateRegistry();
         }
         chain = createTemplateBuilderChain();
-        cache = new HashMap<Type, Template<Type>>();
-        genericCache = new HashMap<Type, GenericTemplate>();
+        cache = new ConcurrentHashMap<Type, Template<Type>>();
+        genericCache = new ConcurrentHashMap<Type, GenericTemplate>();
+        building = new ConcurrentHashMap<Type, Build>();
+        parameterizedCache = new ConcurrentHashMap<Type, ParameterizedEntry>();
         registerTemplatesWhichRefersRegistry();
     }
 
@@ -166,11 +192,18 @@ public class TemplateRegistry {
         buildAndRegister(null, targetClass, false, flist);
     }
 
-    public synchronized void register(final Type targetType, final Template tmpl) {
+    public void register(final Type targetType, final Template tmpl) {
         if (tmpl == null) {
             throw new NullPointerException("Template object is null");
         }
 
+        cacheTemplate(targetType, tmpl);
+        invalidateParameterizedCache();
+    }
+
+    // caches a template found by a lookup, which doesn't change the templates
+    // of parameterized types already built
+    private void cacheTemplate(final Type targetType, final Template tmpl) {
         if (targetType instanceof ParameterizedType) {
             cache.put(((ParameterizedType) targetType).getRawType(), tmpl);
         } else {
@@ -178,32 +211,54 @@ public class TemplateRegistry {
         }
     }
 
-    public synchronized void registerGeneric(final Type targetType, final GenericTemplate tmpl) {
+    public void registerGeneric(final Type targetType, final GenericTemplate tmpl) {
         if (targetType instanceof ParameterizedType) {
             genericCache.put(((ParameterizedType) targetType).getRawType(),
                     tmpl);
         } else {
             genericCache.put(targetType, tmpl);
         }
+        invalidateParameterizedCache();
     }
 
-    public synchronized boolean unregister(final Type targetType) {
+    public boolean unregister(final Type targetType) {
         Template<Type> tmpl = cache.remove(targetType);
+        invalidateParameterizedCache();
         return tmpl != null;
     }
 
-    public synchronized void unregister() {
+    public void unregister() {
         cache.clear();
+        invalidateParameterizedCache();
     }
 
-    public synchronized Template lookup(Type targetType) {
+    // changes whenever templates are registered or unregistered
+    int getGeneration() {
+        return generation.get();
+    }
+
+    private void invalidateParameterizedCache() {
+        generation.incrementAndGet();
+        parameterizedCache.clear();
+    }
+
+    public Template lookup(Type targetType) {
         Template tmpl;
 
         if (targetType instanceof ParameterizedType) {
             // ParameterizedType is not a Class<?>
             ParameterizedType paramedType = (ParameterizedType) targetType;
+            int gen = generation.get();
+            ParameterizedEntry e = parameterizedCache.get(paramedType);
+            if (e != null && e.generation == gen) {
+                return e.template;
+            }
             tmpl = lookupGenericType(paramedType);
             if (tmpl != null) {
+                if (parameterizedCache.size() >= MAX_PARAMETERIZED_CACHE_SIZE) {
+                    parameterizedCache.clear();
+                }
+                parameterizedCache.put(paramedType, new ParameterizedEntry(tmpl, gen));
                 return tmpl;
             }
             targetType = paramedType.getRawType();
@@ -219,11 +274,16 @@ public class TemplateRegistry {
             return tmpl;
         }
 
+        tmpl = lookupBuilding(targetType);
+        if (tmpl != null) {
+            return tmpl;
+        }
+
         if (targetType instanceof WildcardType ||
                 targetType instanceof TypeVariable) {
             // WildcardType is not a Class<?>
             tmpl = new AnyTemplate<Object>(this);
-            register(targetType, tmpl);
+            cacheTemplate(targetType, tmpl);
             return tmpl;
         }
 
@@ -235,7 +295,7 @@ public class TemplateRegistry {
             // following processing should be merged into lookAfterBuilding
             // or lookupInterfaceTypes method in next version
             tmpl = new MessagePackableTemplate(targetClass);
-            register(targetClass, tmpl);
+            cacheTemplate(targetClass, tmpl);
             return tmpl;
         }
 
@@ -243,7 +303,7 @@ public class TemplateRegistry {
             // writing interfaces will succeed
             // reading into interfaces will fail
             tmpl = new AnyTemplate<Object>(this);
-            register(targetType, tmpl);
+            cacheTemplate(targetType, tmpl);
             return tmpl;
         }
 
@@ -354,7 +414,7 @@ public class TemplateRegistry {
             for (; superClass != Object.class; superClass = superClass.getSuperclass()) {
                 tmpl = lookupGenericTypeImpl0(targetType, superClass);
                 if (tmpl != null) {
-                    register(targetType, tmpl);
+                    cacheTemplate(targetType, tmpl);
                     return tmpl;
                 }
             }
@@ -459,6 +519,30 @@ public class TemplateRegistry {
         return tmpl;
     }
 
+    // returns the template of a class being built, waiting for the build
+    // unless the current thread is building templates
+    private Template<Type> lookupBuilding(Type targetType) {
+        Build b = building.get(targetType);
+        if (b == null) {
+            return null;
+        }
+        if (isBuildingOnCurrentThread()) {
+            return b.reference;
+        }
+        b.await();
+        return cache.get(targetType);
+    }
+
+    private boolean isBuildingOnCurrentThread() {
+        Thread current = Thread.currentThread();
+        for (Build b : building.values()) {
+            if (b.owner == current) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private <T> Template<T> lookupAfterBuilding(Class<T> targetClass) {
         TemplateBuilder builder = chain.select(targetClass, true);
         Template<T> tmpl = null;
@@ -466,7 +550,7 @@ public class TemplateRegistry {
             // TODO #MN for Android, we should modify here
             tmpl = chain.getForceBuilder().loadTemplate(targetClass);
             if (tmpl != null) {
-                register(targetClass, tmpl);
+                cacheTemplate(targetClass, tmpl);
                 return tmpl;
             }
             tmpl = buildAndRegister(builder, targetClass, true, null);
@@ -480,13 +564,13 @@ public class TemplateRegistry {
         for (Class<?> infType : infTypes) {
             tmpl = (Template<T>) cache.get(infType);
             if (tmpl != null) {
-                register(targetClass, tmpl);
+                cacheTemplate(targetClass, tmpl);
                 return tmpl;
             } else {
                 try {
                     tmpl = (Template<T>) parent.lookupCache(infType);
                     if (tmpl != null) {
-                        register(targetClass, tmpl);
+                        cacheTemplate(targetClass, tmpl);
                         return tmpl;
                     }
                 } catch (NullPointerException e) { // ignore
@@ -504,13 +588,13 @@ public class TemplateRegistry {
                     .getSuperclass()) {
                 tmpl = (Template<T>) cache.get(superClass);
                 if (tmpl != null) {
-                    register(targetClass, tmpl);
+                    cacheTemplate(targetClass, tmpl);
                     return tmpl;
                 } else {
                     try {
                         tmpl = (Template<T>) parent.lookupCache(superClass);
                         if (tmpl != null) {
-                            register(targetClass, tmpl);
+                            cacheTemplate(targetClass, tmpl);
                             return tmpl;
                         }
                     } catch (NullPointerException e) { // ignore
@@ -528,13 +612,13 @@ public class TemplateRegistry {
             for (; superClass != Object.class; superClass = superClass.getSuperclass()) {
                 tmpl = (Template<T>) lookupInterfaceTypes(superClass);
                 if (tmpl != null) {
-                    register(targetClass, tmpl);
+                    cacheTemplate(targetClass, tmpl);
                     return tmpl;
                 } else {
                     try {
                         tmpl = (Template<T>) parent.lookupCache(superClass);
                         if (tmpl != null) {
-                            register(targetClass, tmpl);
+                            cacheTemplate(targetClass, tmpl);
                             return tmpl;
                         }
                     } catch (NullPointerException e) { // ignore
@@ -545,38 +629,74 @@ public class TemplateRegistry {
         return tmpl;
     }
 
-    private synchronized Template buildAndRegister(TemplateBuilder builder,
+    private Template buildAndRegister(TemplateBuilder builder,
             final Class targetClass, final boolean hasAnnotation,
             final FieldList flist) {
-        Template newTmpl = null;
-        Template oldTmpl = null;
-        try {
-            if (cache.containsKey(targetClass)) {
-                oldTmpl = cache.get(targetClass);
+        Build b = new Build(new TemplateReference(this, targetClass));
+        Build other;
+        while ((other = building.putIfAbsent(targetClass, b)) != null) {
+            if (isBuildingOnCurrentThread()) {
+                return other.reference;
             }
-            newTmpl = new TemplateReference(this, targetClass);
-            cache.put(targetClass, newTmpl);
-            if (builder == null) {
+            other.await();
+        }
+        boolean explicit = builder == null;
+        try {
+            if (explicit) {
                 builder = chain.select(targetClass, hasAnnotation);
+            } else {
+                // looked up rather than registered: another thread may have
+                // built it after the lookup missed the cache
+                Template tmpl = cache.get(targetClass);
+                if (tmpl != null) {
+                    return tmpl;
+                }
             }
-            newTmpl = flist != null ?
+            Template newTmpl = flist != null ?
                     builder.buildTemplate(targetClass, flist) : builder.buildTemplate(targetClass);
+            cache.put(targetClass, newTmpl);
+            if (explicit) {
+                // registered explicitly, possibly replacing a template
+                invalidateParameterizedCache();
+            }
             return newTmpl;
         } catch (Exception e) {
-            if (oldTmpl != null) {
-                cache.put(targetClass, oldTmpl);
-            } else {
-                cache.remove(targetClass);
-            }
-            newTmpl = null;
             if (e instanceof MessageTypeException) {
                 throw (MessageTypeException) e;
             } else {
                 throw new MessageTypeException(e);
             }
         } finally {
-            if (newTmpl != null) {
-                cache.put(targetClass, newTmpl);
+            building.remove(targetClass);
+            b.done.countDown();
+        }
+    }
+
+    private static final class ParameterizedEntry {
+        final Template template;
+        final int generation;
+
+        ParameterizedEntry(Template template, int generation) {
+            this.template = template;
+            this.generation = generation;
+        }
+    }
+
+    private static final class Build {
+        final Thread owner = Thread.currentThread();
+        final Template reference;
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Build(Template reference) {
+            this.reference = reference;
+        }
+
+        void await() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MessageTypeException(e);
             }
         }
     }
@@ -36,8 +36,13 @@ import org.msgpack.annotation.MessagePackOrdinalEnum;
 import org.msgpack.annotation.NotNullable;
 import org.msgpack.annotation.Optional;
 import org.msgpack.annotation.OrdinalEnum;
+import org.msgpack.annotation.Packed;
 import org.msgpack.template.FieldList;
 import org.msgpack.template.FieldOption;
+import org.msgpack.template.PackedDoubleArrayTemplate;
+import org.msgpack.template.PackedFloatArrayTemplate;
+import org.msgpack.template.PackedIntegerArrayTemplate;
+import org.msgpack.template.PackedLongArrayTemplate;
 import org.msgpack.template.Template;
 import org.msgpack.template.TemplateRegistry;
 import org.msgpack.template.builder.TemplateBuildException;
@@ -237,6 +242,28 @@ public abstract class AbstractTemplateBuilder implements TemplateBuilder {
         }
     }
 
+    /**
+     * Returns the template of the field, or a packed array template if the
+     * field is annotated with {@link Packed}.
+     */
+    protected Template<?> lookupFieldTemplate(FieldEntry entry) {
+        if (!entry.isPacked()) {
+            return registry.lookup(entry.getGenericType());
+        }
+        Class<?> type = entry.getType();
+        if (type == int[].class) {
+            return PackedIntegerArrayTemplate.getInstance();
+        } else if (type == long[].class) {
+            return PackedLongArrayTemplate.getInstance();
+        } else if (type == float[].class) {
+            return PackedFloatArrayTemplate.getInstance();
+        } else if (type == double[].class) {
+            return PackedDoubleArrayTemplate.getInstance();
+        }
+        throw new TemplateBuildException("@Packed is not supported for "
+                + entry.getJavaTypeName() + " field: " + entry.getName());
+    }
+
     @Override
     public void writeTemplate(Type targetType, String directoryName) {
         throw new UnsupportedOperationException(targetType.toString());
@@ -111,7 +111,10 @@ public class BeansBuildContext extends BuildContext<BeansFieldEntry> {
                     buildString("$1.writeNil();");
                 }
                 buildString("} else {");
-                buildString("  this.templates[%d].write($1, _$$_t.%s());", i, e.getGetterName());
+                // passed through an Object local: javassist counts a long[] or
+                // double[] argument of invokeinterface as two slots
+                buildString("  java.lang.Object _$$_v%d = _$$_t.%s();", i, e.getGetterName());
+                buildString("  this.templates[%d].write($1, _$$_v%d);", i, i);
                 buildString("}");
             }
         }
@@ -157,9 +160,10 @@ public class BeansBuildContext extends BuildContext<BeansFieldEntry> {
             if (type.isPrimitive()) {
                 buildString("_$$_t.%s( $1.%s() );", e.getSetterName(), primitiveReadName(type));
             } else {
+                buildString("java.lang.Object _$$_v%d = _$$_t.%s();", i, e.getGetterName());
                 buildString(
-                        "_$$_t.%s( (%s)this.templates[%d].read($1, _$$_t.%s()) );",
-                        e.getSetterName(), e.getJavaTypeName(), i, e.getGetterName());
+                        "_$$_t.%s( (%s)this.templates[%d].read($1, _$$_v%d) );",
+                        e.getSetterName(), e.getJavaTypeName(), i, i);
             }
 
             if (e.isOptional()) {
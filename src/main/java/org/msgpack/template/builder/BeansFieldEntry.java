@@ -1,9 +1,11 @@
 package org.msgpack.template.builder;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 
 import org.msgpack.MessageTypeException;
+import org.msgpack.annotation.Packed;
 import org.msgpack.template.FieldOption;
 import org.msgpack.template.builder.beans.PropertyDescriptor;
 
@@ -41,6 +43,14 @@ public class BeansFieldEntry extends FieldEntry {
         return desc;
     }
 
+    @Override
+    public boolean isPacked() {
+        Method getter = getPropertyDescriptor().getReadMethod();
+        Method setter = getPropertyDescriptor().getWriteMethod();
+        return (getter != null && getter.isAnnotationPresent(Packed.class))
+                || (setter != null && setter.isAnnotationPresent(Packed.class));
+    }
+
     @Override
     public String getName() {
         return getPropertyDescriptor().getDisplayName();
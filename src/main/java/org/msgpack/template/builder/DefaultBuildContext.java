@@ -77,9 +77,34 @@ public class DefaultBuildContext extends BuildContext<FieldEntry> {
             InvocationTargetException {
         Constructor<?> cons = c.getConstructor(new Class[] { Class.class, Template[].class });
         Object tmpl = cons.newInstance(new Object[] { origClass, templates });
+        ((JavassistTemplateBuilder.JavassistTemplate) tmpl).fields = privateFields();
         return (Template) tmpl;
     }
 
+    // private fields are accessed through Field objects made accessible once
+    // here instead of on every read and write
+    private Field[] privateFields() {
+        Field[] fields = new Field[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            FieldEntry e = entries[i];
+            if (!e.isAvailable()) {
+                continue;
+            }
+            Field field = ((DefaultFieldEntry) e).getField();
+            if (Modifier.isPrivate(field.getModifiers())) {
+                field.setAccessible(true);
+                fields[i] = field;
+            }
+        }
+        return fields;
+    }
+
+    // suffix of the Field methods that get and set a primitive without boxing
+    private static String fieldAccessorSuffix(Class<?> type) {
+        String name = type.getName();
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
     protected void buildMethodInit() {
     }
 
@@ -111,18 +136,18 @@ public class DefaultBuildContext extends BuildContext<FieldEntry> {
                 if (!isPrivate) {
                     buildString("  $1.%s(_$$_t.%s);\n", primitiveWriteName(type), de.getName());
                 } else {
-                    buildString(
-                            "  %s.writePrivateField($1, _$$_t, %s.class, \"%s\", templates[%d]);\n",
-                            DefaultBuildContext.class.getName(), de.getField().getDeclaringClass().getName(), de.getName(), i);
+                    buildString("  $1.%s(this.fields[%d].get%s(_$$_t));\n",
+                            primitiveWriteName(type), i, fieldAccessorSuffix(type));
                 }
             } else { // reference types
+                // passed through an Object local: javassist counts a long[] or
+                // double[] argument of invokeinterface as two slots
                 if (!isPrivate) {
-                    buildString("  if (_$$_t.%s == null) {\n", de.getName());
+                    buildString("  java.lang.Object _$$_v%d = _$$_t.%s;\n", i, de.getName());
                 } else {
-                    buildString(
-                            "  if (%s.readPrivateField(_$$_t, %s.class, \"%s\") == null) {\n",
-                            DefaultBuildContext.class.getName(), de.getField().getDeclaringClass().getName(), de.getName());
+                    buildString("  java.lang.Object _$$_v%d = this.fields[%d].get(_$$_t);\n", i, i);
                 }
+                buildString("  if (_$$_v%d == null) {\n", i);
                 if (de.isNotNullable()) {
                     buildString(
                             "    throw new %s(\"%s cannot be null by @NotNullable\");\n",
@@ -131,13 +156,7 @@ public class DefaultBuildContext extends BuildContext<FieldEntry> {
                     buildString("    $1.writeNil();\n");
                 }
                 buildString("  } else {\n");
-                if (!isPrivate) {
-                    buildString("    templates[%d].write($1, _$$_t.%s);\n", i, de.getName());
-                } else {
-                    buildString(
-                            "    %s.writePrivateField($1, _$$_t, %s.class, \"%s\", templates[%d]);\n",
-                            DefaultBuildContext.class.getName(), de.getField().getDeclaringClass().getName(), de.getName(), i);
-                }
+                buildString("    templates[%d].write($1, _$$_v%d);\n", i, i);
                 buildString("  }\n");
             }
         }
@@ -217,19 +236,21 @@ public class DefaultBuildContext extends BuildContext<FieldEntry> {
                 if (!isPrivate) {
                     buildString("    _$$_t.%s = $1.%s();\n", de.getName(), primitiveReadName(type));
                 } else {
-                    buildString(
-                            "    %s.readPrivateField($1, _$$_t, %s.class, \"%s\", templates[%d]);\n",
-                            DefaultBuildContext.class.getName(), de.getField().getDeclaringClass().getName(), de.getName(), i);
+                    buildString("    this.fields[%d].set%s(_$$_t, (%s) $1.%s());\n",
+                            i, fieldAccessorSuffix(type), type.getName(), primitiveReadName(type));
                 }
             } else {
                 if (!isPrivate) {
+                    buildString("    java.lang.Object _$$_v%d = _$$_t.%s;\n", i, de.getName());
                     buildString(
-                            "    _$$_t.%s = (%s) this.templates[%d].read($1, _$$_t.%s);\n",
-                            de.getName(), de.getJavaTypeName(), i, de.getName());
+                            "    _$$_t.%s = (%s) this.templates[%d].read($1, _$$_v%d);\n",
+                            de.getName(), de.getJavaTypeName(), i, i);
                 } else {
-                    buildString(
-                            "    %s.readPrivateField($1, _$$_t, %s.class, \"%s\", templates[%d]);\n",
-                            DefaultBuildContext.class.getName(), de.getField().getDeclaringClass().getName(), de.getName(), i);
+                    buildString("    java.lang.Object _$$_v%d = this.fields[%d].get(_$$_t);\n", i, i);
+                    buildString("    java.lang.Object _$$_r%d = this.templates[%d].read($1, _$$_v%d);\n", i, i, i);
+                    buildString("    if (_$$_r%d != _$$_v%d) {\n", i, i);
+                    buildString("      this.fields[%d].set(_$$_t, _$$_r%d);\n", i, i);
+                    buildString("    }\n");
                 }
             }
 
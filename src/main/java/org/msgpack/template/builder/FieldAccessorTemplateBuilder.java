@@ -0,0 +1,322 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.template.builder;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.msgpack.MessageTypeException;
+import org.msgpack.packer.Packer;
+import org.msgpack.template.AbstractTemplate;
+import org.msgpack.template.Template;
+import org.msgpack.template.TemplateRegistry;
+import org.msgpack.unpacker.Unpacker;
+
+/**
+ * Template builder that works without generating code, like
+ * {@link ReflectionTemplateBuilder}, but resolves everything it can when the
+ * template is built: each field gets an accessor holding its accessible
+ * {@link Field} and the template of its type, and primitive fields are read
+ * and written with the typed methods of {@link Field} so that they are not
+ * boxed.
+ *
+ * @since 0.6.8
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class FieldAccessorTemplateBuilder extends ReflectionTemplateBuilder {
+
+    static abstract class FieldAccessor {
+        protected final FieldEntry entry;
+
+        protected final Field field;
+
+        FieldAccessor(FieldEntry entry) {
+            this.entry = entry;
+            this.field = ((DefaultFieldEntry) entry).getField();
+        }
+
+        abstract void write(Packer pk, Object target) throws Exception;
+
+        abstract void read(Unpacker u, Object target) throws Exception;
+    }
+
+    static final class ObjectAccessor extends FieldAccessor {
+        private final Template template;
+
+        ObjectAccessor(FieldEntry entry, Template template) {
+            super(entry);
+            this.template = template;
+        }
+
+        void write(Packer pk, Object target) throws Exception {
+            Object v = field.get(target);
+            if (v == null) {
+                if (entry.isNotNullable()) {
+                    throw new MessageTypeException(entry.getName()
+                            + " cannot be null by @NotNullable");
+                }
+                pk.writeNil();
+            } else {
+                template.write(pk, v, true);
+            }
+        }
+
+        void read(Unpacker u, Object target) throws Exception {
+            Object f = field.get(target);
+            Object o = template.read(u, f, false);
+            if (o != f) {
+                field.set(target, o);
+            }
+        }
+    }
+
+    static final class BooleanAccessor extends FieldAccessor {
+        BooleanAccessor(FieldEntry entry) {
+            super(entry);
+        }
+
+        void write(Packer pk, Object target) throws Exception {
+            pk.write(field.getBoolean(target));
+        }
+
+        void read(Unpacker u, Object target) throws Exception {
+            field.setBoolean(target, u.readBoolean());
+        }
+    }
+
+    static final class ByteAccessor extends FieldAccessor {
+        ByteAccessor(FieldEntry entry) {
+            super(entry);
+        }
+
+        void write(Packer pk, Object target) throws Exception {
+            pk.write(field.getByte(target));
+        }
+
+        void read(Unpacker u, Object target) throws Exception {
+            field.setByte(target, u.readByte());
+        }
+    }
+
+    static final class ShortAccessor extends FieldAccessor {
+        ShortAccessor(FieldEntry entry) {
+            super(entry);
+        }
+
+        void write(Packer pk, Object target) throws Exception {
+            pk.write(field.getShort(target));
+        }
+
+        void read(Unpacker u, Object target) throws Exception {
+            field.setShort(target, u.readShort());
+        }
+    }
+
+    static final class IntAccessor extends FieldAccessor {
+        IntAccessor(FieldEntry entry) {
+            super(entry);
+        }
+
+        void write(Packer pk, Object target) throws Exception {
+            pk.write(field.getInt(target));
+        }
+
+        void read(Unpacker u, Object target) throws Exception {
+            field.setInt(target, u.readInt());
+        }
+    }
+
+    static final class LongAccessor extends FieldAccessor {
+        LongAccessor(FieldEntry entry) {
+            super(entry);
+        }
+
+        void write(Packer pk, Object target) throws Exception {
+            pk.write(field.getLong(target));
+        }
+
+        void read(Unpacker u, Object target) throws Exception {
+            field.setLong(target, u.readLong());
+        }
+    }
+
+    static final class FloatAccessor extends FieldAccessor {
+        FloatAccessor(FieldEntry entry) {
+            super(entry);
+        }
+
+        void write(Packer pk, Object target) throws Exception {
+            pk.write(field.getFloat(target));
+        }
+
+        void read(Unpacker u, Object target) throws Exception {
+            field.setFloat(target, u.readFloat());
+        }
+    }
+
+    static final class DoubleAccessor extends FieldAccessor {
+        DoubleAccessor(FieldEntry entry) {
+            super(entry);
+        }
+
+        void write(Packer pk, Object target) throws Exception {
+            pk.write(field.getDouble(target));
+        }
+
+        void read(Unpacker u, Object target) throws Exception {
+            field.setDouble(target, u.readDouble());
+        }
+    }
+
+    // same encoding as CharacterTemplate
+    static final class CharAccessor extends FieldAccessor {
+        CharAccessor(FieldEntry entry) {
+            super(entry);
+        }
+
+        void write(Packer pk, Object target) throws Exception {
+            pk.write((int) field.getChar(target));
+        }
+
+        void read(Unpacker u, Object target) throws Exception {
+            field.setChar(target, (char) u.readInt());
+        }
+    }
+
+    static final class AccessorClassTemplate<T> extends AbstractTemplate<T> {
+        private final Class<T> targetClass;
+
+        // null for the entries that are not available
+        private final FieldAccessor[] accessors;
+
+        AccessorClassTemplate(Class<T> targetClass, FieldAccessor[] accessors) {
+            this.targetClass = targetClass;
+            this.accessors = accessors;
+        }
+
+        @Override
+        public void write(Packer packer, T target, boolean required)
+                throws IOException {
+            if (target == null) {
+                if (required) {
+                    throw new MessageTypeException("attempted to write null");
+                }
+                packer.writeNil();
+                return;
+            }
+            try {
+                packer.writeArrayBegin(accessors.length);
+                for (FieldAccessor accessor : accessors) {
+                    if (accessor == null) {
+                        packer.writeNil();
+                    } else {
+                        accessor.write(packer, target);
+                    }
+                }
+                packer.writeArrayEnd();
+            } catch (IOException e) {
+                throw e;
+            } catch (MessageTypeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new MessageTypeException(e);
+            }
+        }
+
+        @Override
+        public T read(Unpacker unpacker, T to, boolean required)
+                throws IOException {
+            if (!required && unpacker.trySkipNil()) {
+                return null;
+            }
+            try {
+                if (to == null) {
+                    to = targetClass.newInstance();
+                }
+
+                unpacker.readArrayBegin();
+                for (FieldAccessor accessor : accessors) {
+                    if (accessor == null) {
+                        unpacker.skip();
+                    } else if (accessor.entry.isOptional() && unpacker.trySkipNil()) {
+                        // if Optional + nil, than keep default value
+                    } else {
+                        accessor.read(unpacker, to);
+                    }
+                }
+
+                unpacker.readArrayEnd();
+                return to;
+            } catch (IOException e) {
+                throw e;
+            } catch (MessageTypeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new MessageTypeException(e);
+            }
+        }
+    }
+
+    public FieldAccessorTemplateBuilder(TemplateRegistry registry) {
+        super(registry);
+    }
+
+    @Override
+    public <T> Template<T> buildTemplate(Class<T> targetClass, FieldEntry[] entries) {
+        if (entries == null) {
+            throw new NullPointerException("entries is null: " + targetClass);
+        }
+
+        FieldAccessor[] accessors = new FieldAccessor[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            FieldEntry entry = entries[i];
+            if (entry.isAvailable()) {
+                accessors[i] = toAccessor(entry);
+            }
+        }
+        return new AccessorClassTemplate<T>(targetClass, accessors);
+    }
+
+    protected FieldAccessor toAccessor(FieldEntry entry) {
+        Field field = ((DefaultFieldEntry) entry).getField();
+        if (!Modifier.isPublic(field.getModifiers())) {
+            field.setAccessible(true);
+        }
+
+        Class<?> type = entry.getType();
+        if (type == boolean.class) {
+            return new BooleanAccessor(entry);
+        } else if (type == byte.class) {
+            return new ByteAccessor(entry);
+        } else if (type == short.class) {
+            return new ShortAccessor(entry);
+        } else if (type == int.class) {
+            return new IntAccessor(entry);
+        } else if (type == long.class) {
+            return new LongAccessor(entry);
+        } else if (type == float.class) {
+            return new FloatAccessor(entry);
+        } else if (type == double.class) {
+            return new DoubleAccessor(entry);
+        } else if (type == char.class) {
+            return new CharAccessor(entry);
+        }
+        return new ObjectAccessor(entry, lookupFieldTemplate(entry));
+    }
+}
@@ -53,6 +53,16 @@ public abstract class FieldEntry {
         return option == FieldOption.NOTNULLABLE;
     }
 
+    /**
+     * Returns true if the field is annotated with
+     * {@link org.msgpack.annotation.Packed}.
+     * 
+     * @since 0.6.8
+     */
+    public boolean isPacked() {
+        return false;
+    }
+
     public abstract String getName();
 
     public abstract Class<?> getType();
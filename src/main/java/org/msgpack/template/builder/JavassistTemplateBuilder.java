@@ -18,6 +18,7 @@
 package org.msgpack.template.builder;
 
 import java.lang.Thread;
+import java.lang.reflect.Field;
 import java.lang.reflect.Type;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -40,6 +41,8 @@ public class JavassistTemplateBuilder extends AbstractTemplateBuilder {
     public static abstract class JavassistTemplate<T> extends AbstractTemplate<T> {
         public Class<T> targetClass;
         public Template<?>[] templates;
+        // accessible private fields by entry index, set after construction
+        public Field[] fields;
 
         public JavassistTemplate(Class<T> targetClass, Template<?>[] templates) {
             this.targetClass = targetClass;
@@ -125,7 +128,7 @@ public class JavassistTemplateBuilder extends AbstractTemplateBuilder {
             if (!e.isAvailable()) {
                 tmpls[i] = null;
             } else {
-                Template<?> tmpl = registry.lookup(e.getGenericType());
+                Template<?> tmpl = lookupFieldTemplate(e);
                 tmpls[i] = tmpl;
             }
         }
@@ -91,7 +91,7 @@ public class ReflectionBeansTemplateBuilder extends ReflectionTemplateBuilder {
             if (type.isPrimitive()) {
                 tmpls[i] = new ReflectionBeansFieldTemplate(e);
             } else {
-                Template tmpl = registry.lookup(e.getGenericType());
+                Template tmpl = lookupFieldTemplate(e);
                 tmpls[i] = new FieldTemplateImpl(e, tmpl);
             }
         }
@@ -192,7 +192,7 @@ public class ReflectionTemplateBuilder extends AbstractTemplateBuilder {
         for (int i = 0; i < entries.length; i++) {
             FieldEntry entry = entries[i];
             // Class<?> t = entry.getType();
-            Template template = registry.lookup(entry.getGenericType());
+            Template template = lookupFieldTemplate(entry);
             templates[i] = new FieldTemplateImpl(entry, template);
         }
         return templates;
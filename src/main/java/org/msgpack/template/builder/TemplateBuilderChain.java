@@ -25,6 +25,15 @@ import org.msgpack.template.TemplateRegistry;
 
 public class TemplateBuilderChain {
 
+    /**
+     * System property that selects the builder of class templates:
+     * <code>javassist</code> generates code, <code>reflection</code> uses
+     * {@link ReflectionTemplateBuilder} and <code>accessor</code> uses
+     * {@link FieldAccessorTemplateBuilder}. By default code is generated
+     * unless the VM is Dalvik.
+     */
+    public static final String BUILDER_PROPERTY = "msgpack.template.builder";
+
     private static boolean enableDynamicCodeGeneration() {
         try {
             return !System.getProperty("java.vm.name").equals("Dalvik");
@@ -33,6 +42,18 @@ public class TemplateBuilderChain {
         }
     }
 
+    private static String selectedBuilder() {
+        String name = null;
+        try {
+            name = System.getProperty(BUILDER_PROPERTY);
+        } catch (SecurityException e) { // ignore
+        }
+        if ("javassist".equals(name) || "reflection".equals(name) || "accessor".equals(name)) {
+            return name;
+        }
+        return enableDynamicCodeGeneration() ? "javassist" : "reflection";
+    }
+
     protected List<TemplateBuilder> templateBuilders;
 
     protected TemplateBuilder forceBuilder;
@@ -64,7 +85,8 @@ public class TemplateBuilderChain {
         TemplateBuilder builder;
         templateBuilders.add(new ArrayTemplateBuilder(registry));
         templateBuilders.add(new OrdinalEnumTemplateBuilder(registry));
-        if (enableDynamicCodeGeneration()) { // use dynamic code generation
+        String selected = selectedBuilder();
+        if (selected.equals("javassist")) { // use dynamic code generation
             builder = forceBuilder;
             templateBuilders.add(builder);
             // FIXME #MN next version
@@ -72,7 +94,11 @@ public class TemplateBuilderChain {
             // JavassistBeansTemplateBuilder(registry));
             templateBuilders.add(new ReflectionBeansTemplateBuilder(registry));
         } else { // use reflection
-            builder = new ReflectionTemplateBuilder(registry);
+            if (selected.equals("accessor")) {
+                builder = new FieldAccessorTemplateBuilder(registry);
+            } else {
+                builder = new ReflectionTemplateBuilder(registry);
+            }
             templateBuilders.add(builder);
             templateBuilders.add(new ReflectionBeansTemplateBuilder(registry));
         }
@@ -33,6 +33,8 @@ public abstract class AbstractUnpacker implements Unpacker {
 
     protected int mapSizeLimit = 2097152;
 
+    protected RawCache rawCache;
+
     protected AbstractUnpacker(MessagePack msgpack) {
         this.msgpack = msgpack;
     }
@@ -42,6 +44,58 @@ public abstract class AbstractUnpacker implements Unpacker {
         return ByteBuffer.wrap(readByteArray());
     }
 
+    @Override
+    public int[] readIntArray(int[] to) throws IOException {
+        int n = readArrayBegin();
+        if (to == null || to.length != n) {
+            to = new int[n];
+        }
+        for (int i = 0; i < n; i++) {
+            to[i] = readInt();
+        }
+        readArrayEnd();
+        return to;
+    }
+
+    @Override
+    public long[] readLongArray(long[] to) throws IOException {
+        int n = readArrayBegin();
+        if (to == null || to.length != n) {
+            to = new long[n];
+        }
+        for (int i = 0; i < n; i++) {
+            to[i] = readLong();
+        }
+        readArrayEnd();
+        return to;
+    }
+
+    @Override
+    public float[] readFloatArray(float[] to) throws IOException {
+        int n = readArrayBegin();
+        if (to == null || to.length != n) {
+            to = new float[n];
+        }
+        for (int i = 0; i < n; i++) {
+            to[i] = readFloat();
+        }
+        readArrayEnd();
+        return to;
+    }
+
+    @Override
+    public double[] readDoubleArray(double[] to) throws IOException {
+        int n = readArrayBegin();
+        if (to == null || to.length != n) {
+            to = new double[n];
+        }
+        for (int i = 0; i < n; i++) {
+            to[i] = readDouble();
+        }
+        readArrayEnd();
+        return to;
+    }
+
     @Override
     public void readArrayEnd() throws IOException {
         readArrayEnd(false);
@@ -134,4 +188,8 @@ public abstract class AbstractUnpacker implements Unpacker {
             mapSizeLimit = size;
         }
     }
+
+    public void setRawCache(RawCache cache) {
+        rawCache = cache;
+    }
 }
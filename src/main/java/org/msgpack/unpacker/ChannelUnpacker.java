@@ -0,0 +1,126 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.unpacker;
+
+import java.io.IOException;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import org.msgpack.MessagePack;
+import org.msgpack.type.Value;
+
+/**
+ * Deserializer driven by reads of a (typically non-blocking)
+ * {@link java.nio.channels.ReadableByteChannel}. Each call to {@link #read()}
+ * reads what is available, passes every completed object to the
+ * {@link Callback} and keeps a partially received object, including open
+ * arrays and maps, until more bytes arrive.
+ * 
+ * @since 0.6.8
+ */
+public class ChannelUnpacker {
+    public interface Callback {
+        public void onValue(Value value) throws IOException;
+    }
+
+    private static final int DEFAULT_READ_BUFFER_SIZE = 8192;
+
+    private final ReadableByteChannel channel;
+    private final Callback callback;
+    private final BufferUnpacker unpacker;
+    private final UnpackerIterator iterator;
+    private final ByteBuffer readBuffer;
+
+    public ChannelUnpacker(MessagePack msgpack, ReadableByteChannel channel, Callback callback) {
+        this(msgpack, channel, callback, DEFAULT_READ_BUFFER_SIZE);
+    }
+
+    public ChannelUnpacker(MessagePack msgpack, ReadableByteChannel channel, Callback callback,
+            int readBufferSize) {
+        this.channel = channel;
+        this.callback = callback;
+        this.unpacker = msgpack.createBufferUnpacker();
+        this.iterator = unpacker.iterator();
+        this.readBuffer = ByteBuffer.allocate(readBufferSize);
+    }
+
+    /**
+     * Reads from the channel until it has no more bytes available and
+     * dispatches completed objects. Returns the number of bytes read, or -1
+     * if the channel reached end-of-stream between objects.
+     * 
+     * @throws EOFException
+     *             if the channel reached end-of-stream inside an object
+     */
+    public int read() throws IOException {
+        int total = 0;
+        while (true) {
+            int n = channel.read(readBuffer);
+            if (n > 0) {
+                readBuffer.flip();
+                unpacker.feed(readBuffer);
+                readBuffer.clear();
+                total += n;
+                dispatch();
+            } else if (n < 0 && total == 0) {
+                if (hasPartialValue()) {
+                    throw new EOFException("channel closed in the middle of an object");
+                }
+                return -1;
+            } else {
+                return total;
+            }
+        }
+    }
+
+    private void dispatch() throws IOException {
+        while (iterator.hasNext()) {
+            callback.onValue(iterator.next());
+        }
+        IOException ex = iterator.getException();
+        if (ex != null) {
+            throw ex;
+        }
+    }
+
+    private boolean hasPartialValue() {
+        if (unpacker instanceof MessagePackUnpacker
+                && ((MessagePackUnpacker) unpacker).isInsideValue()) {
+            return true;
+        }
+        return unpacker.getBufferSize() > 0;
+    }
+
+    /**
+     * Returns the number of received bytes that do not yet form a complete
+     * object.
+     */
+    public int getBufferedSize() {
+        return unpacker.getBufferSize();
+    }
+
+    public ReadableByteChannel getChannel() {
+        return channel;
+    }
+
+    public void close() throws IOException {
+        unpacker.close();
+        channel.close();
+    }
+}
@@ -20,11 +20,13 @@ package org.msgpack.unpacker;
 import java.io.IOException;
 import java.io.EOFException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 import org.msgpack.MessagePack;
 import org.msgpack.MessageTypeException;
 import org.msgpack.packer.Unconverter;
 import org.msgpack.type.Value;
+import org.msgpack.type.RawValue;
 import org.msgpack.type.ValueType;
 import org.msgpack.type.ArrayValue;
 import org.msgpack.type.MapValue;
@@ -187,7 +189,22 @@ public class Converter extends AbstractUnpacker {
 
     @Override
     public String readString() throws IOException {
-        String str = getTop().asRawValue().getString();
+        RawValue raw = getTop().asRawValue();
+        String str;
+        if (rawCache != null) {
+            ByteBuffer key = ByteBuffer.wrap(raw.getByteArray());
+            if (key.remaining() > rawCache.getMaxLength()) {
+                str = raw.getString();
+            } else {
+                str = rawCache.getString(key);
+                if (str == null) {
+                    str = raw.getString();
+                    rawCache.putString(key, str);
+                }
+            }
+        } else {
+            str = raw.getString();
+        }
         stack.reduceCount();
         if (stack.getDepth() == 0) {
             value = null;
@@ -31,7 +31,7 @@ public class MessagePackBufferUnpacker extends MessagePackUnpacker implements Bu
     }
 
     public MessagePackBufferUnpacker(MessagePack msgpack, int bufferSize) {
-        super(msgpack, new LinkedBufferInput(bufferSize));
+        super(msgpack, new LinkedBufferInput(bufferSize, msgpack.getBufferAllocator()));
     }
 
     @Override
@@ -20,9 +20,13 @@ package org.msgpack.unpacker;
 import java.io.IOException;
 import java.io.EOFException;
 import java.io.InputStream;
+import java.io.File;
 import java.math.BigInteger;
 import org.msgpack.io.Input;
 import org.msgpack.io.StreamInput;
+import org.msgpack.io.BufferedStreamInput;
+import org.msgpack.io.ByteArrayInput;
+import org.msgpack.io.MappedFileInput;
 import org.msgpack.io.BufferReferer;
 import org.msgpack.MessagePack;
 import org.msgpack.MessageTypeException;
@@ -32,11 +36,100 @@ import org.msgpack.type.ValueType;
 public class MessagePackUnpacker extends AbstractUnpacker {
     private static final byte REQUIRE_TO_READ_HEAD = (byte) 0xc6;
 
+    // kinds of head bytes; scalars come before K_FIXRAW
+    private static final byte K_INVALID = 0;
+    private static final byte K_FIXINT = 1;
+    private static final byte K_NIL = 2;
+    private static final byte K_BOOLEAN = 3;
+    private static final byte K_FLOAT = 4;
+    private static final byte K_DOUBLE = 5;
+    private static final byte K_UINT8 = 6;
+    private static final byte K_UINT16 = 7;
+    private static final byte K_UINT32 = 8;
+    private static final byte K_UINT64 = 9;
+    private static final byte K_INT8 = 10;
+    private static final byte K_INT16 = 11;
+    private static final byte K_INT32 = 12;
+    private static final byte K_INT64 = 13;
+    private static final byte K_FIXRAW = 14;
+    private static final byte K_RAW16 = 15;
+    private static final byte K_RAW32 = 16;
+    private static final byte K_FIXARRAY = 17;
+    private static final byte K_ARRAY16 = 18;
+    private static final byte K_ARRAY32 = 19;
+    private static final byte K_FIXMAP = 20;
+    private static final byte K_MAP16 = 21;
+    private static final byte K_MAP32 = 22;
+
+    // indexed by (head byte & 0xff)
+    private static final byte[] HEAD_KIND = new byte[256];
+    // value of fixnums and booleans, count of FixRaw, FixArray and FixMap
+    private static final byte[] HEAD_INLINE = new byte[256];
+    // bytes following the head byte which hold a value or a count
+    private static final byte[] HEAD_SIZE = new byte[256];
+    private static final ValueType[] HEAD_TYPE = new ValueType[256];
+
+    static {
+        for (int i = 0x00; i <= 0x7f; i++) { // Positive Fixnum
+            setHead(i, K_FIXINT, i, 0, ValueType.INTEGER);
+        }
+        for (int i = 0xe0; i <= 0xff; i++) { // Negative Fixnum
+            setHead(i, K_FIXINT, (byte) i, 0, ValueType.INTEGER);
+        }
+        for (int i = 0xa0; i <= 0xbf; i++) { // FixRaw
+            setHead(i, K_FIXRAW, i & 0x1f, 0, ValueType.RAW);
+        }
+        for (int i = 0x90; i <= 0x9f; i++) { // FixArray
+            setHead(i, K_FIXARRAY, i & 0x0f, 0, ValueType.ARRAY);
+        }
+        for (int i = 0x80; i <= 0x8f; i++) { // FixMap
+            setHead(i, K_FIXMAP, i & 0x0f, 0, ValueType.MAP);
+        }
+        setHead(0xc0, K_NIL, 0, 0, ValueType.NIL);
+        setHead(0xc2, K_BOOLEAN, 0, 0, ValueType.BOOLEAN);
+        setHead(0xc3, K_BOOLEAN, 1, 0, ValueType.BOOLEAN);
+        setHead(0xca, K_FLOAT, 0, 4, ValueType.FLOAT);
+        setHead(0xcb, K_DOUBLE, 0, 8, ValueType.FLOAT);
+        setHead(0xcc, K_UINT8, 0, 1, ValueType.INTEGER);
+        setHead(0xcd, K_UINT16, 0, 2, ValueType.INTEGER);
+        setHead(0xce, K_UINT32, 0, 4, ValueType.INTEGER);
+        setHead(0xcf, K_UINT64, 0, 8, ValueType.INTEGER);
+        setHead(0xd0, K_INT8, 0, 1, ValueType.INTEGER);
+        setHead(0xd1, K_INT16, 0, 2, ValueType.INTEGER);
+        setHead(0xd2, K_INT32, 0, 4, ValueType.INTEGER);
+        setHead(0xd3, K_INT64, 0, 8, ValueType.INTEGER);
+        setHead(0xda, K_RAW16, 0, 2, ValueType.RAW);
+        setHead(0xdb, K_RAW32, 0, 4, ValueType.RAW);
+        setHead(0xdc, K_ARRAY16, 0, 2, ValueType.ARRAY);
+        setHead(0xdd, K_ARRAY32, 0, 4, ValueType.ARRAY);
+        setHead(0xde, K_MAP16, 0, 2, ValueType.MAP);
+        setHead(0xdf, K_MAP32, 0, 4, ValueType.MAP);
+    }
+
+    private static void setHead(int b, byte kind, int inline, int size, ValueType type) {
+        HEAD_KIND[b] = kind;
+        HEAD_INLINE[b] = (byte) inline;
+        HEAD_SIZE[b] = (byte) size;
+        HEAD_TYPE[b] = type;
+    }
+
     protected final Input in;
     private final UnpackerStack stack = new UnpackerStack();
 
     private byte headByte = REQUIRE_TO_READ_HEAD;
 
+    private boolean unchecked;
+
+    // in the unchecked mode, the number of values read in the innermost
+    // array or map begun by the caller; the numbers of the enclosing ones are
+    // saved in consumedStack while it is open
+    private int consumed;
+    private final int[] consumedStack = new int[UnpackerStack.MAX_STACK_SIZE];
+
+    // true while skip() or readValue() reads the elements of a nested array
+    // or map, which are always counted on the stack
+    private boolean walking;
+
     private byte[] raw;
     private int rawFilled;
 
@@ -55,6 +148,18 @@ public class MessagePackUnpacker extends AbstractUnpacker {
         this(msgpack, new StreamInput(stream));
     }
 
+    public MessagePackUnpacker(MessagePack msgpack, InputStream stream, int bufferSize) {
+        this(msgpack, new BufferedStreamInput(stream, bufferSize));
+    }
+
+    public MessagePackUnpacker(MessagePack msgpack, byte[] b, int off, int len) {
+        this(msgpack, new ByteArrayInput(b, off, len));
+    }
+
+    public MessagePackUnpacker(MessagePack msgpack, File file) throws IOException {
+        this(msgpack, new MappedFileInput(file));
+    }
+
     protected MessagePackUnpacker(MessagePack msgpack, Input in) {
         super(msgpack);
         this.in = in;
@@ -68,6 +173,74 @@ public class MessagePackUnpacker extends AbstractUnpacker {
         return b;
     }
 
+    /**
+     * Enables or disables the unchecked mode. In the unchecked mode the
+     * values read by the caller are not checked one by one against the size
+     * of the enclosing array or map; they are only counted, and the count is
+     * compared with the size by readArrayEnd and readMapEnd. Remaining
+     * elements are skipped or rejected as in the checked mode, and reading
+     * more elements than the size is rejected there. The size limits, the
+     * nesting of the begin and end calls and the head bytes are still
+     * checked.
+     *
+     * The mode should be changed between top-level values.
+     *
+     * @since 0.6.8
+     */
+    public void setUnchecked(boolean unchecked) {
+        this.unchecked = unchecked;
+    }
+
+    /**
+     * @since 0.6.8
+     */
+    public boolean isUnchecked() {
+        return unchecked;
+    }
+
+    private void checkCount() {
+        if (!unchecked) {
+            stack.checkCount();
+        }
+    }
+
+    private void reduceCount() {
+        if (unchecked) {
+            consumed++;
+        } else {
+            stack.reduceCount();
+        }
+    }
+
+    // number of elements of the innermost array or map not read yet
+    private int getRemaining() {
+        return unchecked ? stack.getTopCount() - consumed : stack.getTopCount();
+    }
+
+    // opens the array or map just pushed by the caller
+    private void beginContainer() {
+        if (unchecked) {
+            consumedStack[stack.getDepth()] = consumed;
+            consumed = 0;
+        }
+    }
+
+    private void endContainer() {
+        if (unchecked) {
+            consumed = consumedStack[stack.getDepth()];
+        }
+        stack.pop();
+    }
+
+    // reads a value requested by the caller; readOne is used while
+    // walking nested values where counting is needed in both modes
+    private void readTyped(Accept a) throws IOException {
+        checkCount();
+        if (readOneWithoutStack(a)) {
+            reduceCount();
+        }
+    }
+
     final void readOne(Accept a) throws IOException {
         stack.checkCount();
         if (readOneWithoutStack(a)) {
@@ -86,242 +259,200 @@ public class MessagePackUnpacker extends AbstractUnpacker {
 
         final int b = (int) getHeadByte();
 
-        if ((b & 0x80) == 0) { // Positive Fixnum
-            // System.out.println("positive fixnum "+b);
+        switch (HEAD_KIND[b & 0xff]) {
+        case K_FIXINT:
             a.acceptInteger(b);
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        }
-
-        if ((b & 0xe0) == 0xe0) { // Negative Fixnum
-            // System.out.println("negative fixnum "+b);
-            a.acceptInteger(b);
-            headByte = REQUIRE_TO_READ_HEAD;
-            return true;
-        }
-
-        if ((b & 0xe0) == 0xa0) { // FixRaw
-            int count = b & 0x1f;
-            if (count == 0) {
-                a.acceptEmptyRaw();
-                headByte = REQUIRE_TO_READ_HEAD;
-                return true;
-            }
-            if (!tryReferRawBody(a, count)) {
-                readRawBody(count);
-                a.acceptRaw(raw);
-                raw = null;
-            }
-            headByte = REQUIRE_TO_READ_HEAD;
-            return true;
-        }
-
-        if ((b & 0xf0) == 0x90) { // FixArray
-            int count = b & 0x0f;
-            // System.out.println("fixarray count:"+count);
-            a.acceptArray(count);
-            stack.reduceCount();
-            stack.pushArray(count);
-            headByte = REQUIRE_TO_READ_HEAD;
-            return false;
-        }
-
-        if ((b & 0xf0) == 0x80) { // FixMap
-            int count = b & 0x0f;
-            // System.out.println("fixmap count:"+count/2);
-            a.acceptMap(count);
-            stack.reduceCount();
-            stack.pushMap(count);
-            headByte = REQUIRE_TO_READ_HEAD;
-            return false;
-        }
-
-        return readOneWithoutStackLarge(a, b);
-    }
-
-    private boolean readOneWithoutStackLarge(Accept a, final int b)
-            throws IOException {
-        switch (b & 0xff) {
-        case 0xc0: // nil
+        case K_NIL:
             a.acceptNil();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        case 0xc2: // false
-            a.acceptBoolean(false);
+        case K_BOOLEAN:
+            a.acceptBoolean(HEAD_INLINE[b & 0xff] != 0);
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        case 0xc3: // true
-            a.acceptBoolean(true);
-            headByte = REQUIRE_TO_READ_HEAD;
-            return true;
-        case 0xca: // float
+        case K_FLOAT:
             a.acceptFloat(in.getFloat());
             in.advance();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        case 0xcb: // double
+        case K_DOUBLE:
             a.acceptDouble(in.getDouble());
             in.advance();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        case 0xcc: // unsigned int 8
+        case K_UINT8:
             a.acceptUnsignedInteger(in.getByte());
             in.advance();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        case 0xcd: // unsigned int 16
+        case K_UINT16:
             a.acceptUnsignedInteger(in.getShort());
             in.advance();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        case 0xce: // unsigned int 32
+        case K_UINT32:
             a.acceptUnsignedInteger(in.getInt());
             in.advance();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        case 0xcf: // unsigned int 64
+        case K_UINT64:
             a.acceptUnsignedInteger(in.getLong());
             in.advance();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        case 0xd0: // signed int 8
+        case K_INT8:
             a.acceptInteger(in.getByte());
             in.advance();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        case 0xd1: // signed int 16
+        case K_INT16:
             a.acceptInteger(in.getShort());
             in.advance();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        case 0xd2: // signed int 32
+        case K_INT32:
             a.acceptInteger(in.getInt());
             in.advance();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        case 0xd3: // signed int 64
+        case K_INT64:
             a.acceptInteger(in.getLong());
             in.advance();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
-        case 0xda: // raw 16
-        {
-            int count = in.getShort() & 0xffff;
+        case K_FIXRAW: {
+            int count = HEAD_INLINE[b & 0xff];
             if (count == 0) {
                 a.acceptEmptyRaw();
-                in.advance();
                 headByte = REQUIRE_TO_READ_HEAD;
                 return true;
             }
-            if (count >= rawSizeLimit) {
-                String reason = String.format(
-                        "Size of raw (%d) over limit at %d",
-                        new Object[] { count, rawSizeLimit });
-                throw new SizeLimitException(reason);
-            }
-            in.advance();
-            if (!tryReferRawBody(a, count)) {
-                readRawBody(count);
-                a.acceptRaw(raw);
-                raw = null;
-            }
+            return acceptRawBody(a, count);
+        }
+        case K_RAW16:
+            return readRaw(a, in.getShort() & 0xffff);
+        case K_RAW32:
+            return readRaw(a, in.getInt());
+        case K_FIXARRAY:
+            return acceptArray(a, HEAD_INLINE[b & 0xff]);
+        case K_ARRAY16:
+            return readArrayHeader(a, in.getShort() & 0xffff);
+        case K_ARRAY32:
+            return readArrayHeader(a, in.getInt());
+        case K_FIXMAP:
+            return acceptMap(a, HEAD_INLINE[b & 0xff]);
+        case K_MAP16:
+            return readMapHeader(a, in.getShort() & 0xffff);
+        case K_MAP32:
+            return readMapHeader(a, in.getInt());
+        default:
+            // headByte = CS_INVALID
             headByte = REQUIRE_TO_READ_HEAD;
-            return true;
+            throw new IOException("Invalid byte: " + b); // TODO error FormatException
         }
-        case 0xdb: // raw 32
-        {
-            int count = in.getInt();
-            if (count == 0) {
-                a.acceptEmptyRaw();
-                in.advance();
-                headByte = REQUIRE_TO_READ_HEAD;
-                return true;
-            }
-            if (count < 0 || count >= rawSizeLimit) {
-                String reason = String.format(
-                        "Size of raw (%d) over limit at %d",
-                        new Object[] { count, rawSizeLimit });
-                throw new SizeLimitException(reason);
-            }
+    }
+
+    // count of raw 16/32 has been got but not advanced yet
+    private boolean readRaw(Accept a, int count) throws IOException {
+        if (count == 0) {
+            a.acceptEmptyRaw();
             in.advance();
-            if (!tryReferRawBody(a, count)) {
-                readRawBody(count);
-                a.acceptRaw(raw);
-                raw = null;
-            }
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
         }
-        case 0xdc: // array 16
-        {
-            int count = in.getShort() & 0xffff;
-            if (count >= arraySizeLimit) {
-                String reason = String.format(
-                        "Size of array (%d) over limit at %d",
-                        new Object[] { count, arraySizeLimit });
-                throw new SizeLimitException(reason);
-            }
-            a.acceptArray(count);
-            stack.reduceCount();
-            stack.pushArray(count);
-            in.advance();
-            headByte = REQUIRE_TO_READ_HEAD;
-            return false;
+        if (count < 0 || count >= rawSizeLimit) {
+            String reason = String.format(
+                    "Size of raw (%d) over limit at %d",
+                    new Object[] { count, rawSizeLimit });
+            throw new SizeLimitException(reason);
         }
-        case 0xdd: // array 32
-        {
-            int count = in.getInt();
-            if (count < 0 || count >= arraySizeLimit) {
-                String reason = String.format(
-                        "Size of array (%d) over limit at %d",
-                        new Object[] { count, arraySizeLimit });
-                throw new SizeLimitException(reason);
-            }
-            a.acceptArray(count);
-            stack.reduceCount();
-            stack.pushArray(count);
-            in.advance();
-            headByte = REQUIRE_TO_READ_HEAD;
-            return false;
+        in.advance();
+        return acceptRawBody(a, count);
+    }
+
+    private boolean acceptRawBody(Accept a, int count) throws IOException {
+        if (!tryReferRawBody(a, count)) {
+            readRawBody(count);
+            a.acceptRaw(raw);
+            raw = null;
         }
-        case 0xde: // map 16
-        {
-            int count = in.getShort() & 0xffff;
-            if (count >= mapSizeLimit) {
-                String reason = String.format(
-                        "Size of map (%d) over limit at %d",
-                        new Object[] { count, mapSizeLimit });
-                throw new SizeLimitException(reason);
-            }
-            a.acceptMap(count);
+        headByte = REQUIRE_TO_READ_HEAD;
+        return true;
+    }
+
+    // count of array 16/32 has been got but not advanced yet
+    private boolean readArrayHeader(Accept a, int count) throws IOException {
+        if (count < 0 || count >= arraySizeLimit) {
+            String reason = String.format(
+                    "Size of array (%d) over limit at %d",
+                    new Object[] { count, arraySizeLimit });
+            throw new SizeLimitException(reason);
+        }
+        acceptArray(a, count);
+        in.advance();
+        return false;
+    }
+
+    private boolean acceptArray(Accept a, int count) throws IOException {
+        a.acceptArray(count);
+        if (unchecked && !walking) {
+            consumed++;
+        } else {
             stack.reduceCount();
-            stack.pushMap(count);
-            in.advance();
-            headByte = REQUIRE_TO_READ_HEAD;
-            return false;
         }
-        case 0xdf: // map 32
-        {
-            int count = in.getInt();
-            if (count < 0 || count >= mapSizeLimit) {
-                String reason = String.format(
-                        "Size of map (%d) over limit at %d",
-                        new Object[] { count, mapSizeLimit });
-                throw new SizeLimitException(reason);
-            }
-            a.acceptMap(count);
+        stack.pushArray(count);
+        headByte = REQUIRE_TO_READ_HEAD;
+        return false;
+    }
+
+    // count of map 16/32 has been got but not advanced yet
+    private boolean readMapHeader(Accept a, int count) throws IOException {
+        if (count < 0 || count >= mapSizeLimit) {
+            String reason = String.format(
+                    "Size of map (%d) over limit at %d",
+                    new Object[] { count, mapSizeLimit });
+            throw new SizeLimitException(reason);
+        }
+        acceptMap(a, count);
+        in.advance();
+        return false;
+    }
+
+    private boolean acceptMap(Accept a, int count) throws IOException {
+        a.acceptMap(count);
+        if (unchecked && !walking) {
+            consumed++;
+        } else {
             stack.reduceCount();
-            stack.pushMap(count);
-            in.advance();
-            headByte = REQUIRE_TO_READ_HEAD;
-            return false;
         }
-        default:
-            // System.out.println("unknown b "+(b&0xff));
-            // headByte = CS_INVALID
+        stack.pushMap(count);
+        headByte = REQUIRE_TO_READ_HEAD;
+        return false;
+    }
+
+    // skips the value of a scalar whose head byte has been read
+    private void skipScalar(int size) throws IOException {
+        switch (size) {
+        case 0:
             headByte = REQUIRE_TO_READ_HEAD;
-            throw new IOException("Invalid byte: " + b); // TODO error FormatException
+            return;
+        case 1:
+            in.getByte();
+            break;
+        case 2:
+            in.getShort();
+            break;
+        case 4:
+            in.getInt();
+            break;
+        default:
+            in.getLong();
+            break;
         }
+        in.advance();
+        headByte = REQUIRE_TO_READ_HEAD;
     }
 
     private boolean tryReferRawBody(BufferReferer referer, int size) throws IOException {
@@ -344,11 +475,11 @@ public class MessagePackUnpacker extends AbstractUnpacker {
 
     @Override
     protected boolean tryReadNil() throws IOException {
-        stack.checkCount();
+        checkCount();
         int b = getHeadByte() & 0xff;
         if (b == 0xc0) {
             // nil is read
-            stack.reduceCount();
+            reduceCount();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
         }
@@ -358,7 +489,7 @@ public class MessagePackUnpacker extends AbstractUnpacker {
 
     @Override
     public boolean trySkipNil() throws IOException {
-        if (stack.getDepth() > 0 && stack.getTopCount() <= 0) {
+        if (stack.getDepth() > 0 && getRemaining() <= 0) {
             // end of array or map
             return true;
         }
@@ -366,7 +497,7 @@ public class MessagePackUnpacker extends AbstractUnpacker {
         int b = getHeadByte() & 0xff;
         if (b == 0xc0) {
             // nil is skipped
-            stack.reduceCount();
+            reduceCount();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
         }
@@ -377,10 +508,10 @@ public class MessagePackUnpacker extends AbstractUnpacker {
     @Override
     public void readNil() throws IOException {
         // optimized not to allocate nilAccept
-        stack.checkCount();
+        checkCount();
         int b = getHeadByte() & 0xff;
         if (b == 0xc0) {
-            stack.reduceCount();
+            reduceCount();
             headByte = REQUIRE_TO_READ_HEAD;
             return;
         }
@@ -390,14 +521,14 @@ public class MessagePackUnpacker extends AbstractUnpacker {
     @Override
     public boolean readBoolean() throws IOException {
         // optimized not to allocate booleanAccept
-        stack.checkCount();
+        checkCount();
         int b = getHeadByte() & 0xff;
         if (b == 0xc2) {
-            stack.reduceCount();
+            reduceCount();
             headByte = REQUIRE_TO_READ_HEAD;
             return false;
         } else if (b == 0xc3) {
-            stack.reduceCount();
+            reduceCount();
             headByte = REQUIRE_TO_READ_HEAD;
             return true;
         }
@@ -408,74 +539,291 @@ public class MessagePackUnpacker extends AbstractUnpacker {
     @Override
     public byte readByte() throws IOException {
         // optimized not to allocate byteAccept
-        stack.checkCount();
-        readOneWithoutStack(intAccept);
-        int value = intAccept.value;
+        checkCount();
+        int value = readIntWithoutStack();
         if (value < (int) Byte.MIN_VALUE || value > (int) Byte.MAX_VALUE) {
             throw new MessageTypeException(); // TODO message
         }
-        stack.reduceCount();
+        reduceCount();
         return (byte) value;
     }
 
     @Override
     public short readShort() throws IOException {
         // optimized not to allocate shortAccept
-        stack.checkCount();
-        readOneWithoutStack(intAccept);
-        int value = intAccept.value;
+        checkCount();
+        int value = readIntWithoutStack();
         if (value < (int) Short.MIN_VALUE || value > (int) Short.MAX_VALUE) {
             throw new MessageTypeException(); // TODO message
         }
-        stack.reduceCount();
+        reduceCount();
         return (short) value;
     }
 
     @Override
     public int readInt() throws IOException {
-        readOne(intAccept);
-        return intAccept.value;
+        checkCount();
+        int value = readIntWithoutStack();
+        reduceCount();
+        return value;
+    }
+
+    // decodes integers inline; other types go through intAccept to get
+    // the same errors as readOne
+    private int readIntWithoutStack() throws IOException {
+        if (raw != null) {
+            readOneWithoutStack(intAccept);
+            return intAccept.value;
+        }
+        final int b = (int) getHeadByte();
+        int value;
+        switch (HEAD_KIND[b & 0xff]) {
+        case K_FIXINT:
+            headByte = REQUIRE_TO_READ_HEAD;
+            return b;
+        case K_UINT8:
+            value = in.getByte() & 0xff;
+            break;
+        case K_UINT16:
+            value = in.getShort() & 0xffff;
+            break;
+        case K_UINT32:
+            value = in.getInt();
+            if (value < 0) {
+                throw new MessageTypeException("Integer overflow: unsigned int 32 into int");
+            }
+            break;
+        case K_UINT64: {
+            long v = in.getLong();
+            if (v < 0L || v > (long) Integer.MAX_VALUE) {
+                throw new MessageTypeException("Integer overflow: unsigned int 64 into int");
+            }
+            value = (int) v;
+            break;
+        }
+        case K_INT8:
+            value = in.getByte();
+            break;
+        case K_INT16:
+            value = in.getShort();
+            break;
+        case K_INT32:
+            value = in.getInt();
+            break;
+        case K_INT64: {
+            long v = in.getLong();
+            if (v < (long) Integer.MIN_VALUE || v > (long) Integer.MAX_VALUE) {
+                throw new MessageTypeException("Integer overflow: signed int 64 into int");
+            }
+            value = (int) v;
+            break;
+        }
+        default:
+            readOneWithoutStack(intAccept);
+            return intAccept.value;
+        }
+        in.advance();
+        headByte = REQUIRE_TO_READ_HEAD;
+        return value;
     }
 
     @Override
     public long readLong() throws IOException {
-        readOne(longAccept);
-        return longAccept.value;
+        checkCount();
+        long value = readLongWithoutStack();
+        reduceCount();
+        return value;
+    }
+
+    private long readLongWithoutStack() throws IOException {
+        if (raw != null) {
+            readOneWithoutStack(longAccept);
+            return longAccept.value;
+        }
+        final int b = (int) getHeadByte();
+        long value;
+        switch (HEAD_KIND[b & 0xff]) {
+        case K_FIXINT:
+            headByte = REQUIRE_TO_READ_HEAD;
+            return b;
+        case K_UINT8:
+            value = in.getByte() & 0xff;
+            break;
+        case K_UINT16:
+            value = in.getShort() & 0xffff;
+            break;
+        case K_UINT32:
+            value = in.getInt() & 0xffffffffL;
+            break;
+        case K_UINT64:
+            value = in.getLong();
+            if (value < 0L) {
+                throw new MessageTypeException("Integer overflow: unsigned int 64 into long");
+            }
+            break;
+        case K_INT8:
+            value = in.getByte();
+            break;
+        case K_INT16:
+            value = in.getShort();
+            break;
+        case K_INT32:
+            value = in.getInt();
+            break;
+        case K_INT64:
+            value = in.getLong();
+            break;
+        default:
+            readOneWithoutStack(longAccept);
+            return longAccept.value;
+        }
+        in.advance();
+        headByte = REQUIRE_TO_READ_HEAD;
+        return value;
     }
 
     @Override
     public BigInteger readBigInteger() throws IOException {
-        readOne(bigIntegerAccept);
+        readTyped(bigIntegerAccept);
         return bigIntegerAccept.value;
     }
 
     @Override
     public float readFloat() throws IOException {
-        readOne(doubleAccept);
-        return (float) doubleAccept.value;
+        checkCount();
+        double value = readDoubleWithoutStack();
+        reduceCount();
+        return (float) value;
     }
 
     @Override
     public double readDouble() throws IOException {
-        readOne(doubleAccept);
+        checkCount();
+        double value = readDoubleWithoutStack();
+        reduceCount();
+        return value;
+    }
+
+    private double readDoubleWithoutStack() throws IOException {
+        if (raw == null) {
+            final int b = (int) getHeadByte();
+            double value;
+            switch (HEAD_KIND[b & 0xff]) {
+            case K_FLOAT:
+                value = in.getFloat();
+                break;
+            case K_DOUBLE:
+                value = in.getDouble();
+                break;
+            default:
+                readOneWithoutStack(doubleAccept);
+                return doubleAccept.value;
+            }
+            in.advance();
+            headByte = REQUIRE_TO_READ_HEAD;
+            return value;
+        }
+        readOneWithoutStack(doubleAccept);
         return doubleAccept.value;
     }
 
+    // the elements are read as a whole after the array is pushed on the stack
+
+    @Override
+    public int[] readIntArray(int[] to) throws IOException {
+        int n = readArrayBegin();
+        if (to == null || to.length != n) {
+            to = new int[n];
+        }
+        for (int i = 0; i < n; i++) {
+            to[i] = readIntWithoutStack();
+        }
+        endContainer();
+        return to;
+    }
+
+    @Override
+    public long[] readLongArray(long[] to) throws IOException {
+        int n = readArrayBegin();
+        if (to == null || to.length != n) {
+            to = new long[n];
+        }
+        for (int i = 0; i < n; i++) {
+            to[i] = readLongWithoutStack();
+        }
+        endContainer();
+        return to;
+    }
+
+    @Override
+    public float[] readFloatArray(float[] to) throws IOException {
+        int n = readArrayBegin();
+        if (to == null || to.length != n) {
+            to = new float[n];
+        }
+        for (int i = 0; i < n; i++) {
+            to[i] = (float) readDoubleWithoutStack();
+        }
+        endContainer();
+        return to;
+    }
+
+    @Override
+    public double[] readDoubleArray(double[] to) throws IOException {
+        int n = readArrayBegin();
+        if (to == null || to.length != n) {
+            to = new double[n];
+        }
+        for (int i = 0; i < n; i++) {
+            to[i] = readDoubleWithoutStack();
+        }
+        endContainer();
+        return to;
+    }
+
     @Override
     public byte[] readByteArray() throws IOException {
-        readOne(byteArrayAccept);
+        readTyped(byteArrayAccept);
         return byteArrayAccept.value;
     }
 
     @Override
     public String readString() throws IOException {
-        readOne(stringAccept);
+        checkCount();
+        if (raw != null) {
+            readOneWithoutStack(stringAccept);
+        } else {
+            final int b = (int) getHeadByte();
+            switch (HEAD_KIND[b & 0xff]) {
+            case K_FIXRAW: {
+                int count = HEAD_INLINE[b & 0xff];
+                if (count == 0) {
+                    stringAccept.value = "";
+                    headByte = REQUIRE_TO_READ_HEAD;
+                } else {
+                    acceptRawBody(stringAccept, count);
+                }
+                break;
+            }
+            case K_RAW16:
+                readRaw(stringAccept, in.getShort() & 0xffff);
+                break;
+            case K_RAW32:
+                readRaw(stringAccept, in.getInt());
+                break;
+            default:
+                readOneWithoutStack(stringAccept);
+                break;
+            }
+        }
+        reduceCount();
         return stringAccept.value;
     }
 
     @Override
     public int readArrayBegin() throws IOException {
-        readOne(arrayAccept);
+        readTyped(arrayAccept);
+        beginContainer();
         return arrayAccept.size;
     }
 
@@ -486,7 +834,11 @@ public class MessagePackUnpacker extends AbstractUnpacker {
                     "readArrayEnd() is called but readArrayBegin() is not called");
         }
 
-        int remain = stack.getTopCount();
+        int remain = getRemaining();
+        if (remain < 0) {
+            throw new MessageTypeException(
+                    "readArrayEnd() is called but more elements than the size of the array have been read");
+        }
         if (remain > 0) {
             if (check) {
                 throw new MessageTypeException(
@@ -496,12 +848,13 @@ public class MessagePackUnpacker extends AbstractUnpacker {
                 skip();
             }
         }
-        stack.pop();
+        endContainer();
     }
 
     @Override
     public int readMapBegin() throws IOException {
-        readOne(mapAccept);
+        readTyped(mapAccept);
+        beginContainer();
         return mapAccept.size;
     }
 
@@ -512,7 +865,11 @@ public class MessagePackUnpacker extends AbstractUnpacker {
                     "readMapEnd() is called but readMapBegin() is not called");
         }
 
-        int remain = stack.getTopCount();
+        int remain = getRemaining();
+        if (remain < 0) {
+            throw new MessageTypeException(
+                    "readMapEnd() is called but more elements than the size of the map have been read");
+        }
         if (remain > 0) {
             if (check) {
                 throw new MessageTypeException(
@@ -522,7 +879,7 @@ public class MessagePackUnpacker extends AbstractUnpacker {
                 skip();
             }
         }
-        stack.pop();
+        endContainer();
     }
 
     @Override
@@ -532,13 +889,22 @@ public class MessagePackUnpacker extends AbstractUnpacker {
         }
         valueAccept.setUnconverter(uc);
 
-        stack.checkCount();
+        checkCount();
         if (readOneWithoutStack(valueAccept)) {
-            stack.reduceCount();
+            reduceCount();
             if (uc.getResult() != null) {
                 return;
             }
         }
+        walking = true;
+        try {
+            readNestedValue(uc);
+        } finally {
+            walking = false;
+        }
+    }
+
+    private void readNestedValue(Unconverter uc) throws IOException {
         while (true) {
             while (stack.getTopCount() == 0) {
                 if (stack.topIsArray()) {
@@ -562,75 +928,61 @@ public class MessagePackUnpacker extends AbstractUnpacker {
 
     @Override
     public void skip() throws IOException {
-        stack.checkCount();
+        checkCount();
+        if (raw == null) {
+            int b = getHeadByte() & 0xff;
+            if (HEAD_KIND[b] < K_FIXRAW && HEAD_KIND[b] != K_INVALID) {
+                skipScalar(HEAD_SIZE[b]);
+                reduceCount();
+                return;
+            }
+        }
         if (readOneWithoutStack(skipAccept)) {
-            stack.reduceCount();
+            reduceCount();
             return;
         }
         int targetDepth = stack.getDepth() - 1;
-        while (true) {
-            while (stack.getTopCount() == 0) {
-                stack.pop();
-                if (stack.getDepth() <= targetDepth) {
-                    return;
+        walking = true;
+        try {
+            while (true) {
+                while (stack.getTopCount() == 0) {
+                    stack.pop();
+                    if (stack.getDepth() <= targetDepth) {
+                        return;
+                    }
                 }
+                readOne(skipAccept);
             }
-            readOne(skipAccept);
+        } finally {
+            walking = false;
         }
     }
 
     public ValueType getNextType() throws IOException {
         final int b = (int) getHeadByte();
-        if ((b & 0x80) == 0) { // Positive Fixnum
-            return ValueType.INTEGER;
-        }
-        if ((b & 0xe0) == 0xe0) { // Negative Fixnum
-            return ValueType.INTEGER;
-        }
-        if ((b & 0xe0) == 0xa0) { // FixRaw
-            return ValueType.RAW;
-        }
-        if ((b & 0xf0) == 0x90) { // FixArray
-            return ValueType.ARRAY;
-        }
-        if ((b & 0xf0) == 0x80) { // FixMap
-            return ValueType.MAP;
-        }
-        switch (b & 0xff) {
-        case 0xc0: // nil
-            return ValueType.NIL;
-        case 0xc2: // false
-        case 0xc3: // true
-            return ValueType.BOOLEAN;
-        case 0xca: // float
-        case 0xcb: // double
-            return ValueType.FLOAT;
-        case 0xcc: // unsigned int 8
-        case 0xcd: // unsigned int 16
-        case 0xce: // unsigned int 32
-        case 0xcf: // unsigned int 64
-        case 0xd0: // signed int 8
-        case 0xd1: // signed int 16
-        case 0xd2: // signed int 32
-        case 0xd3: // signed int 64
-            return ValueType.INTEGER;
-        case 0xda: // raw 16
-        case 0xdb: // raw 32
-            return ValueType.RAW;
-        case 0xdc: // array 16
-        case 0xdd: // array 32
-            return ValueType.ARRAY;
-        case 0xde: // map 16
-        case 0xdf: // map 32
-            return ValueType.MAP;
-        default:
+        ValueType type = HEAD_TYPE[b & 0xff];
+        if (type == null) {
             throw new IOException("Invalid byte: " + b); // TODO error FormatException
         }
+        return type;
     }
 
     public void reset() {
         raw = null;
         stack.clear();
+        consumed = 0;
+    }
+
+    @Override
+    public void setRawCache(RawCache cache) {
+        super.setRawCache(cache);
+        stringAccept.cache = cache;
+        valueAccept.cache = cache;
+    }
+
+    // true if an object has been partially read
+    boolean isInsideValue() {
+        return headByte != REQUIRE_TO_READ_HEAD || raw != null || stack.getDepth() > 0;
     }
 
     public void close() throws IOException {
@@ -0,0 +1,125 @@
+//
+// MessagePack for Java
+//
+// Copyright (C) 2009 - 2013 FURUHASHI Sadayuki
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.msgpack.unpacker;
+
+import java.nio.ByteBuffer;
+
+import org.msgpack.type.RawValue;
+
+/**
+ * Bounded table of decoded raws keyed by their bytes. Unpackers with a cache
+ * return the same {@link String} or {@link RawValue} instance for raws that
+ * repeat, such as map keys, instead of decoding them again.
+ * 
+ * Only raws up to <code>maxLength</code> bytes are cached. Each raw maps to
+ * one slot and replaces the entry already there. Cached raw values share
+ * their byte arrays, which must not be modified. A cache is not thread-safe.
+ * 
+ * @since 0.6.8
+ */
+public final class RawCache {
+    private static final class Entry {
+        final byte[] bytes;
+        final int hash;
+        String string;
+        RawValue value;
+
+        Entry(byte[] bytes, int hash) {
+            this.bytes = bytes;
+            this.hash = hash;
+        }
+    }
+
+    private final Entry[] table;
+    private final int maxLength;
+
+    public RawCache() {
+        this(1024, 64);
+    }
+
+    public RawCache(int capacity, int maxLength) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.table = new Entry[size];
+        this.maxLength = maxLength;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    String getString(ByteBuffer bb) {
+        Entry e = find(bb, hash(bb));
+        return e == null ? null : e.string;
+    }
+
+    void putString(ByteBuffer bb, String s) {
+        entry(bb).string = s;
+    }
+
+    RawValue getRawValue(ByteBuffer bb) {
+        Entry e = find(bb, hash(bb));
+        return e == null ? null : e.value;
+    }
+
+    void putRawValue(ByteBuffer bb, RawValue v) {
+        entry(bb).value = v;
+    }
+
+    public void clear() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = null;
+        }
+    }
+
+    private static int hash(ByteBuffer bb) {
+        int h = 0;
+        for (int i = bb.position(), end = bb.limit(); i < end; i++) {
+            h = 31 * h + bb.get(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private Entry find(ByteBuffer bb, int h) {
+        Entry e = table[h & (table.length - 1)];
+        if (e == null || e.hash != h || e.bytes.length != bb.remaining()) {
+            return null;
+        }
+        int pos = bb.position();
+        for (int i = 0; i < e.bytes.length; i++) {
+            if (e.bytes[i] != bb.get(pos + i)) {
+                return null;
+            }
+        }
+        return e;
+    }
+
+    private Entry entry(ByteBuffer bb) {
+        int h = hash(bb);
+        Entry e = find(bb, h);
+        if (e == null) {
+            byte[] bytes = new byte[bb.remaining()];
+            bb.duplicate().get(bytes);
+            e = new Entry(bytes, h);
+            table[h & (table.length - 1)] = e;
+        }
+        return e;
+    }
+}
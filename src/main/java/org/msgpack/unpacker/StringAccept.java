@@ -27,6 +27,7 @@ import org.msgpack.MessageTypeException;
 
 final class StringAccept extends Accept {
     String value;
+    RawCache cache;
     private CharsetDecoder decoder;
 
     public StringAccept() {
@@ -37,11 +38,15 @@ final class StringAccept extends Accept {
 
     @Override
     void acceptRaw(byte[] raw) {
-        try {
-            this.value = decoder.decode(ByteBuffer.wrap(raw)).toString();
-        } catch (CharacterCodingException ex) {
-            throw new MessageTypeException(ex);
+        if (cache != null && raw.length <= cache.getMaxLength()) {
+            decodeCached(ByteBuffer.wrap(raw));
+            return;
         }
+        if (isAscii(raw, 0, raw.length)) {
+            this.value = asciiString(raw, 0, raw.length);
+            return;
+        }
+        decode(ByteBuffer.wrap(raw));
     }
 
     @Override
@@ -51,6 +56,64 @@ final class StringAccept extends Accept {
 
     @Override
     public void refer(ByteBuffer bb, boolean gift) throws IOException {
+        if (cache != null && bb.remaining() <= cache.getMaxLength()) {
+            decodeCached(bb);
+            return;
+        }
+        decodeBuffer(bb);
+    }
+
+    private void decodeCached(ByteBuffer bb) {
+        String s = cache.getString(bb);
+        if (s != null) {
+            this.value = s;
+            return;
+        }
+        ByteBuffer key = bb.duplicate();
+        decodeBuffer(bb);
+        cache.putString(key, value);
+    }
+
+    private void decodeBuffer(ByteBuffer bb) {
+        int len = bb.remaining();
+        if (bb.hasArray()) {
+            byte[] array = bb.array();
+            int off = bb.arrayOffset() + bb.position();
+            if (isAscii(array, off, len)) {
+                this.value = asciiString(array, off, len);
+                return;
+            }
+        } else {
+            // one bulk copy out of the direct buffer, then the same paths
+            // as a heap buffer
+            byte[] bytes = new byte[len];
+            bb.duplicate().get(bytes);
+            if (isAscii(bytes, 0, len)) {
+                this.value = asciiString(bytes, 0, len);
+            } else {
+                decode(ByteBuffer.wrap(bytes));
+            }
+            return;
+        }
+        decode(bb);
+    }
+
+    private static boolean isAscii(byte[] b, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++) {
+            if (b[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // copies ASCII bytes into the String without an intermediate char array
+    @SuppressWarnings("deprecation")
+    private static String asciiString(byte[] b, int off, int len) {
+        return new String(b, 0, off, len);
+    }
+
+    private void decode(ByteBuffer bb) {
         try {
             this.value = decoder.decode(bb).toString();
         } catch (CharacterCodingException ex) {
@@ -79,6 +79,30 @@ public interface Unpacker extends Iterable<Value>, Closeable {
 
     public ByteBuffer readByteBuffer() throws IOException;
 
+    /**
+     * Reads an array of integers. <code>to</code> is filled and returned if
+     * its length equals the size of the array; otherwise a new array is
+     * returned.
+     * 
+     * @since 0.6.8
+     */
+    public int[] readIntArray(int[] to) throws IOException;
+
+    /**
+     * @since 0.6.8
+     */
+    public long[] readLongArray(long[] to) throws IOException;
+
+    /**
+     * @since 0.6.8
+     */
+    public float[] readFloatArray(float[] to) throws IOException;
+
+    /**
+     * @since 0.6.8
+     */
+    public double[] readDoubleArray(double[] to) throws IOException;
+
     public String readString() throws IOException;
 
     public Value readValue() throws IOException;
@@ -96,4 +120,12 @@ public interface Unpacker extends Iterable<Value>, Closeable {
     public void setArraySizeLimit(int size);
 
     public void setMapSizeLimit(int size);
+
+    /**
+     * Sets the cache that short raws read by {@link #readString()} and
+     * {@link #readValue()} are looked up in, or null to disable it.
+     * 
+     * @since 0.6.8
+     */
+    public void setRawCache(RawCache cache);
 }
@@ -38,15 +38,21 @@ public final class UnpackerStack {
     }
 
     public void pushArray(int size) {
-        top++;
-        types[top] = TYPE_ARRAY;
-        counts[top] = size;
+        push(TYPE_ARRAY, size);
     }
 
     public void pushMap(int size) {
+        push(TYPE_MAP, size * 2);
+    }
+
+    private void push(byte type, int count) {
+        if (top + 1 >= MAX_STACK_SIZE) {
+            throw new MessageTypeException(
+                    "Nesting of arrays and maps is deeper than " + (MAX_STACK_SIZE - 1));
+        }
         top++;
-        types[top] = TYPE_MAP;
-        counts[top] = size * 2;
+        types[top] = type;
+        counts[top] = count;
     }
 
     /**
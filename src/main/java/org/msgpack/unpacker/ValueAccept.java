@@ -20,11 +20,13 @@ package org.msgpack.unpacker;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.math.BigInteger;
+import org.msgpack.type.RawValue;
 import org.msgpack.type.ValueFactory;
 import org.msgpack.packer.Unconverter;
 
 final class ValueAccept extends Accept {
     private Unconverter uc = null;
+    RawCache cache;
 
     void setUnconverter(Unconverter uc) throws IOException {
         this.uc = uc;
@@ -88,6 +90,16 @@ final class ValueAccept extends Accept {
 
     @Override
     void acceptRaw(byte[] raw) throws IOException {
+        if (cache != null && raw.length <= cache.getMaxLength()) {
+            ByteBuffer key = ByteBuffer.wrap(raw);
+            RawValue v = cache.getRawValue(key);
+            if (v == null) {
+                v = ValueFactory.createRawValue(raw);
+                cache.putRawValue(key, v);
+            }
+            uc.write(v);
+            return;
+        }
         uc.write(ValueFactory.createRawValue(raw));
     }
 
@@ -99,6 +111,17 @@ final class ValueAccept extends Accept {
     @Override
     public void refer(ByteBuffer bb, boolean gift) throws IOException {
         // TODO gift
+        if (cache != null && bb.remaining() <= cache.getMaxLength()) {
+            RawValue v = cache.getRawValue(bb);
+            if (v == null) {
+                byte[] raw = new byte[bb.remaining()];
+                bb.duplicate().get(raw);
+                v = ValueFactory.createRawValue(raw, true);
+                cache.putRawValue(bb, v);
+            }
+            uc.write(v);
+            return;
+        }
         byte[] raw = new byte[bb.remaining()];
         bb.get(raw);
         uc.write(ValueFactory.createRawValue(raw, true));
@@ -17,10 +17,15 @@
 //
 package org.msgpack.util.json;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import org.msgpack.MessagePack;
+import org.msgpack.io.BufferedStreamOutput;
 import org.msgpack.packer.Packer;
 import org.msgpack.packer.BufferPacker;
 import org.msgpack.unpacker.Unpacker;
@@ -40,6 +45,11 @@ public class JSON extends MessagePack {
         return new JSONPacker(this, stream);
     }
 
+    @Override
+    public Packer createPacker(OutputStream stream, int bufferSize) {
+        return new JSONPacker(this, new BufferedStreamOutput(stream, bufferSize));
+    }
+
     @Override
     public BufferPacker createBufferPacker() {
         return new JSONBufferPacker(this);
@@ -50,11 +60,36 @@ public class JSON extends MessagePack {
         return new JSONBufferPacker(this, bufferSize);
     }
 
+    @Override
+    public BufferPacker createBufferPacker(int bufferSize, int referenceThreshold) {
+        return new JSONBufferPacker(this, bufferSize);
+    }
+
     @Override
     public Unpacker createUnpacker(InputStream stream) {
         return new JSONUnpacker(this, stream);
     }
 
+    @Override
+    public Unpacker createUnpacker(InputStream stream, int bufferSize) {
+        return new JSONUnpacker(this, new BufferedInputStream(stream, bufferSize));
+    }
+
+    @Override
+    public Unpacker createUnpacker(File file) throws IOException {
+        return new JSONUnpacker(this, new FileInputStream(file));
+    }
+
+    @Override
+    public Unpacker createUnpacker(byte[] b) {
+        return createBufferUnpacker(b);
+    }
+
+    @Override
+    public Unpacker createUnpacker(byte[] b, int off, int len) {
+        return createBufferUnpacker(b, off, len);
+    }
+
     @Override
     public BufferUnpacker createBufferUnpacker() {
         return new JSONBufferUnpacker();
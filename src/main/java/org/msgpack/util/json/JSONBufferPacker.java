@@ -17,6 +17,11 @@
 //
 package org.msgpack.util.json;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
 import org.msgpack.MessagePack;
 import org.msgpack.io.LinkedBufferOutput;
 import org.msgpack.packer.BufferPacker;
@@ -37,7 +42,7 @@ public class JSONBufferPacker extends JSONPacker implements BufferPacker {
     }
 
     public JSONBufferPacker(MessagePack msgpack, int bufferSize) {
-        super(msgpack, new LinkedBufferOutput(bufferSize));
+        super(msgpack, new LinkedBufferOutput(bufferSize, msgpack.getBufferAllocator()));
     }
 
     public int getBufferSize() {
@@ -48,6 +53,18 @@ public class JSONBufferPacker extends JSONPacker implements BufferPacker {
         return ((LinkedBufferOutput) out).toByteArray();
     }
 
+    public ByteBuffer[] toByteBuffers() {
+        return ((LinkedBufferOutput) out).toByteBuffers();
+    }
+
+    public void writeTo(OutputStream stream) throws IOException {
+        ((LinkedBufferOutput) out).writeTo(stream);
+    }
+
+    public long writeTo(GatheringByteChannel channel) throws IOException {
+        return ((LinkedBufferOutput) out).writeTo(channel);
+    }
+
     public void clear() {
         reset();
         ((LinkedBufferOutput) out).clear();
@@ -0,0 +1,143 @@
+package org.msgpack.annotation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.packer.BufferPacker;
+import org.msgpack.template.Template;
+import org.msgpack.template.TemplateRegistry;
+import org.msgpack.template.builder.JavassistTemplateBuilder;
+import org.msgpack.template.builder.ReflectionBeansTemplateBuilder;
+import org.msgpack.template.builder.ReflectionTemplateBuilder;
+import org.msgpack.template.builder.TemplateBuildException;
+import org.msgpack.template.builder.TemplateBuilder;
+import org.msgpack.unpacker.BufferUnpacker;
+
+public class TestPacked {
+    @Message
+    public static class PackedMessage {
+        @Packed
+        public double[] features;
+        @Packed
+        public int[] ids;
+        @Packed
+        public long[] stamps;
+        @Packed
+        public float[] weights;
+        public int[] plain;
+
+        public PackedMessage() {
+        }
+    }
+
+    @Beans
+    public static class PackedBean {
+        private double[] features;
+
+        public PackedBean() {
+        }
+
+        @Packed
+        public double[] getFeatures() {
+            return features;
+        }
+
+        public void setFeatures(double[] features) {
+            this.features = features;
+        }
+    }
+
+    @Message
+    public static class UnsupportedMessage {
+        @Packed
+        public short[] values;
+
+        public UnsupportedMessage() {
+        }
+    }
+
+    private static PackedMessage createMessage() {
+        PackedMessage src = new PackedMessage();
+        src.features = new double[] { 0.5, -1.25, Double.MAX_VALUE };
+        src.ids = new int[] { 1, -2, Integer.MAX_VALUE };
+        src.stamps = new long[] { Long.MIN_VALUE, 7L };
+        src.weights = null;
+        src.plain = new int[] { 3 };
+        return src;
+    }
+
+    @Test
+    public void testJavassist() throws Exception {
+        testPacked(new JavassistTemplateBuilder(new TemplateRegistry(null)));
+    }
+
+    @Test
+    public void testReflection() throws Exception {
+        testPacked(new ReflectionTemplateBuilder(new TemplateRegistry(null)));
+    }
+
+    private void testPacked(TemplateBuilder builder) throws Exception {
+        MessagePack msgpack = new MessagePack();
+        Template<PackedMessage> tmpl = builder.buildTemplate(PackedMessage.class);
+        PackedMessage src = createMessage();
+        BufferPacker packer = msgpack.createBufferPacker();
+        tmpl.write(packer, src);
+        byte[] bytes = packer.toByteArray();
+
+        // the packed field is a raw of big-endian values
+        BufferUnpacker unpacker = msgpack.createBufferUnpacker(bytes);
+        assertEquals(5, unpacker.readArrayBegin());
+        ByteBuffer features = ByteBuffer.wrap(unpacker.readByteArray());
+        assertEquals(24, features.remaining());
+        assertEquals(-1.25, features.getDouble(8), 0.0);
+        unpacker.skip();
+        unpacker.skip();
+        unpacker.readNil();
+        assertEquals(1, unpacker.readArrayBegin());
+
+        unpacker = msgpack.createBufferUnpacker(bytes);
+        PackedMessage dst = tmpl.read(unpacker, null);
+        assertArrayEquals(src.features, dst.features, 0.0);
+        assertArrayEquals(src.ids, dst.ids);
+        assertArrayEquals(src.stamps, dst.stamps);
+        assertNull(dst.weights);
+        assertArrayEquals(src.plain, dst.plain);
+        assertEquals(bytes.length, unpacker.getReadByteCount());
+    }
+
+    @Test
+    public void testBeans() throws Exception {
+        TemplateBuilder builder = new ReflectionBeansTemplateBuilder(new TemplateRegistry(null));
+        MessagePack msgpack = new MessagePack();
+        Template<PackedBean> tmpl = builder.buildTemplate(PackedBean.class);
+        PackedBean src = new PackedBean();
+        src.setFeatures(new double[] { 1.5, 2.5 });
+        BufferPacker packer = msgpack.createBufferPacker();
+        tmpl.write(packer, src);
+        byte[] bytes = packer.toByteArray();
+
+        BufferUnpacker unpacker = msgpack.createBufferUnpacker(bytes);
+        unpacker.readArrayBegin();
+        assertEquals(16, unpacker.readByteArray().length);
+
+        unpacker = msgpack.createBufferUnpacker(bytes);
+        PackedBean dst = tmpl.read(unpacker, null);
+        assertArrayEquals(src.getFeatures(), dst.getFeatures(), 0.0);
+    }
+
+    @Test
+    public void testUnsupportedType() throws Exception {
+        try {
+            new ReflectionTemplateBuilder(new TemplateRegistry(null))
+                    .buildTemplate(UnsupportedMessage.class);
+            fail();
+        } catch (TemplateBuildException e) {
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.msgpack.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.packer.BufferPacker;
+import org.msgpack.unpacker.BufferUnpacker;
+
+
+public class TestBufferAllocator {
+    private static class RecordingAllocator implements BufferAllocator {
+        List<ByteBuffer> allocated = new ArrayList<ByteBuffer>();
+        List<ByteBuffer> released = new ArrayList<ByteBuffer>();
+
+        public ByteBuffer allocate(int size) {
+            ByteBuffer bb = ByteBuffer.allocate(size);
+            allocated.add(bb);
+            return bb;
+        }
+
+        public void release(ByteBuffer buffer) {
+            released.add(buffer);
+        }
+    }
+
+    @Test
+    public void testThreadLocal() {
+        BufferAllocator a = new ThreadLocalBufferAllocator(16, 1);
+        ByteBuffer b1 = a.allocate(16);
+        ByteBuffer b2 = a.allocate(10);
+        assertEquals(16, b2.capacity());
+        b1.put((byte)1);
+        a.release(b1);
+        a.release(b2);
+        ByteBuffer b3 = a.allocate(16);
+        assertSame(b1, b3);
+        assertEquals(0, b3.position());
+        assertEquals(16, b3.limit());
+        assertNotSame(b2, a.allocate(16));
+
+        ByteBuffer large = a.allocate(17);
+        assertEquals(17, large.capacity());
+        a.release(large);
+        assertNotSame(large, a.allocate(17));
+    }
+
+    @Test
+    public void testStriped() throws Exception {
+        final BufferAllocator a = new StripedBufferAllocator(16, 1, 4);
+        final ByteBuffer[] b = new ByteBuffer[1];
+        Thread t = new Thread() {
+            public void run() {
+                b[0] = a.allocate(16);
+                a.release(b[0]);
+            }
+        };
+        t.start();
+        t.join();
+        assertSame(b[0], a.allocate(16));
+    }
+
+    @Test
+    public void testLinkedBufferOutput() throws IOException {
+        RecordingAllocator a = new RecordingAllocator();
+        LinkedBufferOutput o = new LinkedBufferOutput(10, a);
+        for(int i=0; i < 5; i++) {
+            o.writeLong(i);
+        }
+        assertEquals(40, o.getSize());
+        assertEquals(5, a.allocated.size());
+        o.clear();
+        // the current chunk is kept for the next writes
+        assertSameBuffers(a.allocated.subList(0, 4), a.released);
+
+        o.writeInt(7);
+        assertEquals(4, o.toByteArray().length);
+        assertEquals(5, a.allocated.size());
+        o.close();
+        assertSameBuffers(a.allocated, a.released);
+    }
+
+    @Test
+    public void testLinkedBufferInput() throws IOException {
+        RecordingAllocator a = new RecordingAllocator();
+        LinkedBufferInput in = new LinkedBufferInput(8, a);
+        byte[] ref = new byte[8];
+        in.feed(new byte[6]);
+        in.feed(new byte[6]);
+        in.feed(ref, true);
+        assertEquals(2, a.allocated.size());
+
+        in.getLong();
+        in.advance();
+        assertEquals(1, a.released.size());
+        assertSame(a.allocated.get(0), a.released.get(0));
+
+        in.getInt();
+        in.advance();
+        in.getLong();
+        in.advance();
+        assertEquals(2, a.released.size());
+        assertEquals(0, in.getSize());
+
+        // the last chunk is kept for later feeds
+        in.feed(new byte[6]);
+        in.clear();
+        assertEquals(3, a.allocated.size());
+        assertEquals(2, a.released.size());
+        in.feed(new byte[6]);
+        assertEquals(3, a.allocated.size());
+    }
+
+    @Test
+    public void testMessagePack() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        RecordingAllocator a = new RecordingAllocator();
+        msgpack.setBufferAllocator(a);
+        byte[] raw = msgpack.write(new int[] { 1, 2, 3 });
+        assertEquals(1, a.allocated.size());
+        assertSameBuffers(a.allocated, a.released);
+        assertArrayEquals(new int[] { 1, 2, 3 }, msgpack.read(raw, int[].class));
+    }
+
+    @Test
+    public void testDirectLinkedBufferOutput() throws IOException {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        DataOutputStream o1 = new DataOutputStream(bo);
+        LinkedBufferOutput o2 = new LinkedBufferOutput(16,
+                new ThreadLocalBufferAllocator(16, 4, true));
+        byte[] raw = new byte[11];
+        raw[3] = (byte)3;
+        for(int i=0; i < 7; i++) {
+            o1.writeByte((byte)0xcc);
+            o1.writeByte((byte)i);
+            o2.writeByteAndByte((byte)0xcc, (byte)i);
+            o1.writeDouble(1.5 * i);
+            o2.writeDouble(1.5 * i);
+            o1.write(raw);
+            o2.write(raw, 0, raw.length);
+            o1.write(raw, 0, 7);
+            o2.write(ByteBuffer.wrap(raw, 0, 7));
+        }
+        o1.write(new byte[20]);
+        o2.write(new byte[20], 0, 20);
+        byte[] expected = bo.toByteArray();
+        assertArrayEquals(expected, o2.toByteArray());
+
+        ByteBuffer[] bufs = o2.toByteBuffers();
+        assertTrue(bufs[0].isDirect());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        o2.writeTo(out);
+        assertArrayEquals(expected, out.toByteArray());
+        o2.clear();
+    }
+
+    @Test
+    public void testDirectMessagePack() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        msgpack.setBufferAllocator(new StripedBufferAllocator(32, 2, 8, true));
+        BufferPacker pk = msgpack.createBufferPacker(32);
+        for(int i=0; i < 50; i++) {
+            pk.write(i * 1000);
+            pk.write("message " + i);
+        }
+        ByteBuffer[] bufs = pk.toByteBuffers();
+        BufferUnpacker u = msgpack.createBufferUnpacker();
+        for(ByteBuffer bb : bufs) {
+            assertTrue(bb.isDirect());
+            u.feed(bb);
+        }
+        pk.clear();
+        for(int i=0; i < 50; i++) {
+            assertEquals(i * 1000, u.readInt());
+            assertEquals("message " + i, u.readString());
+        }
+        u.clear();
+    }
+
+    private static void assertSameBuffers(List<ByteBuffer> expected, List<ByteBuffer> actual) {
+        assertEquals(expected.size(), actual.size());
+        for(int i=0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+}
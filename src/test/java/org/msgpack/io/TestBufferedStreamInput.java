@@ -0,0 +1,157 @@
+package org.msgpack.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.io.IOException;
+import java.io.EOFException;
+import java.io.DataInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.packer.BufferPacker;
+import org.msgpack.unpacker.Unpacker;
+
+
+public class TestBufferedStreamInput {
+    @Test
+    public void testReadByte() throws IOException {
+        byte[] src = new byte[21];
+        src[0] = (byte)1;
+        src[9] = (byte)1;
+        src[20] = (byte)1;
+        DataInputStream b1 = new DataInputStream(new ByteArrayInputStream(src));
+        BufferedStreamInput b2 = new BufferedStreamInput(new ByteArrayInputStream(src), 8);
+
+        for(int i=0; i < src.length; i++) {
+            assertEquals(b1.readByte(), b2.readByte());
+        }
+        assertEquals(src.length, b2.getReadByteCount());
+
+        try {
+            b2.readByte();
+            fail();
+        } catch(EOFException eof) {
+        }
+    }
+
+    @Test
+    public void testGetPrimitives() throws IOException {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        DataOutputStream o = new DataOutputStream(bo);
+        for(int i=0; i < 5; i++) {
+            o.writeByte(i);
+            o.writeShort(i);
+            o.writeInt(i);
+            o.writeLong(i);
+            o.writeFloat(1.1f * i);
+            o.writeDouble(1.1 * i);
+        }
+        byte[] src = bo.toByteArray();
+
+        BufferedStreamInput b = new BufferedStreamInput(new ByteArrayInputStream(src), 11);
+        for(int i=0; i < 5; i++) {
+            assertEquals((byte)i, b.getByte());
+            b.advance();
+            assertEquals((short)i, b.getShort());
+            b.advance();
+            assertEquals(i, b.getInt());
+            b.advance();
+            assertEquals((long)i, b.getLong());
+            b.advance();
+            assertEquals(1.1f * i, b.getFloat(), 0.0f);
+            b.advance();
+            assertEquals(1.1 * i, b.getDouble(), 0.0);
+            b.advance();
+        }
+        assertEquals(src.length, b.getReadByteCount());
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        byte[] src = new byte[100];
+        for(int i=0; i < src.length; i++) {
+            src[i] = (byte)i;
+        }
+        BufferedStreamInput b = new BufferedStreamInput(new ByteArrayInputStream(src), 16);
+        assertEquals((byte)0, b.readByte());
+
+        byte[] small = new byte[10];
+        assertEquals(10, b.read(small, 0, 10));
+        for(int i=0; i < small.length; i++) {
+            assertEquals((byte)(1 + i), small[i]);
+        }
+
+        byte[] large = new byte[40];
+        assertEquals(40, b.read(large, 0, 40));
+        for(int i=0; i < large.length; i++) {
+            assertEquals((byte)(11 + i), large[i]);
+        }
+
+        byte[] rest = new byte[60];
+        assertEquals(49, b.read(rest, 0, 60));
+        assertEquals(src.length, b.getReadByteCount());
+    }
+
+    @Test
+    public void testTryRefer() throws IOException {
+        byte[] src = new byte[40];
+        for(int i=0; i < src.length; i++) {
+            src[i] = (byte)i;
+        }
+        BufferedStreamInput b = new BufferedStreamInput(new ByteArrayInputStream(src), 16);
+        b.readByte();
+
+        final byte[] referred = new byte[12];
+        assertTrue(b.tryRefer(new BufferReferer() {
+            public void refer(ByteBuffer bb, boolean gift) {
+                assertEquals(12, bb.remaining());
+                bb.get(referred);
+            }
+        }, 12));
+        for(int i=0; i < referred.length; i++) {
+            assertEquals((byte)(1 + i), referred[i]);
+        }
+        assertEquals(13, b.getReadByteCount());
+
+        assertFalse(b.tryRefer(new BufferReferer() {
+            public void refer(ByteBuffer bb, boolean gift) {
+                fail();
+            }
+        }, 17));
+        assertEquals((byte)13, b.readByte());
+    }
+
+    @Test
+    public void testUnpack() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        BufferPacker pk = msgpack.createBufferPacker();
+        StringBuilder sb = new StringBuilder();
+        for(int i=0; i < 100; i++) {
+            pk.write(i * 1000L);
+            pk.write(sb.toString());
+            pk.write(new byte[i]);
+            pk.write(i * 0.5);
+            sb.append((char) ('a' + i % 26));
+        }
+        byte[] raw = pk.toByteArray();
+
+        Unpacker u = msgpack.createUnpacker(new ByteArrayInputStream(raw), 32);
+        sb = new StringBuilder();
+        for(int i=0; i < 100; i++) {
+            assertEquals(i * 1000L, u.readLong());
+            assertEquals(sb.toString(), u.readString());
+            assertArrayEquals(new byte[i], u.readByteArray());
+            assertEquals(i * 0.5, u.readDouble(), 0.0);
+            sb.append((char) ('a' + i % 26));
+        }
+        assertEquals(raw.length, u.getReadByteCount());
+    }
+}
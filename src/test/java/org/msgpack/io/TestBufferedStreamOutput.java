@@ -0,0 +1,106 @@
+package org.msgpack.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.IOException;
+import java.io.DataOutputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.packer.BufferPacker;
+import org.msgpack.packer.Packer;
+
+
+public class TestBufferedStreamOutput {
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+        int writeCount;
+        int flushCount;
+
+        @Override
+        public void write(int b) {
+            writeCount++;
+            super.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writeCount++;
+            super.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            flushCount++;
+        }
+    }
+
+    @Test
+    public void testWriteByteAndPrimitives() throws IOException {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        DataOutputStream o1 = new DataOutputStream(bo);
+        CountingOutputStream co = new CountingOutputStream();
+        BufferedStreamOutput o2 = new BufferedStreamOutput(co, 10);
+        o1.writeByte((byte)9);
+        o1.writeByte((byte)2);
+        o2.writeByteAndByte((byte)9, (byte)2);
+        o1.writeByte((byte)9);
+        o1.writeShort((short)2);
+        o2.writeByteAndShort((byte)9, (short)2);
+        o1.writeByte((byte)9);
+        o1.writeInt(2);
+        o2.writeByteAndInt((byte)9, 2);
+        o1.writeByte((byte)9);
+        o1.writeLong(2L);
+        o2.writeByteAndLong((byte)9, 2L);
+        o1.writeByte((byte)9);
+        o1.writeFloat(1.1f);
+        o2.writeByteAndFloat((byte)9, 1.1f);
+        o1.writeByte((byte)9);
+        o1.writeDouble(1.1);
+        o2.writeByteAndDouble((byte)9, 1.1);
+        o2.flush();
+        assertEquals(1, co.flushCount);
+        byte[] b1 = bo.toByteArray();
+        byte[] b2 = co.toByteArray();
+        assertEquals(b1.length, b2.length);
+        assertArrayEquals(b1, b2);
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        CountingOutputStream co = new CountingOutputStream();
+        BufferedStreamOutput o = new BufferedStreamOutput(co, 10);
+        byte[] raw = new byte[23];
+        raw[0] = (byte)1;
+        raw[17] = (byte)1;
+        for(int i=0; i < 11; i++) {
+            bo.write(raw, 0, i);
+            o.write(raw, 0, i);
+            bo.write(raw, 0, raw.length);
+            o.write(raw, 0, raw.length);
+        }
+        o.close();
+        assertArrayEquals(bo.toByteArray(), co.toByteArray());
+    }
+
+    @Test
+    public void testWriteCountFollowsBufferSize() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        BufferPacker bpk = msgpack.createBufferPacker();
+        CountingOutputStream co = new CountingOutputStream();
+        Packer pk = msgpack.createPacker(co, 1024);
+        for(int i=0; i < 1000; i++) {
+            bpk.write(i);
+            pk.write(i);
+        }
+        assertEquals(0, co.flushCount);
+        pk.flush();
+        assertEquals(1, co.flushCount);
+        byte[] expected = bpk.toByteArray();
+        assertArrayEquals(expected, co.toByteArray());
+        assertEquals((expected.length + 1023) / 1024, co.writeCount);
+    }
+}
@@ -0,0 +1,100 @@
+package org.msgpack.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.io.IOException;
+import java.io.DataOutputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+
+public class TestByteArrayInput {
+    @Test
+    public void testGetPrimitives() throws IOException {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        DataOutputStream o = new DataOutputStream(bo);
+        o.writeByte(0);
+        long[] values = new long[] { 0, 1, -1, 127, -128, 255, 32767, -32768,
+                65535, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE, 0x0123456789abcdefL };
+        for(long v : values) {
+            o.writeByte((byte) v);
+            o.writeShort((short) v);
+            o.writeInt((int) v);
+            o.writeLong(v);
+            o.writeFloat((float) v);
+            o.writeDouble((double) v);
+        }
+        byte[] src = bo.toByteArray();
+
+        ByteArrayInput b = new ByteArrayInput(src, 1, src.length - 1);
+        for(long v : values) {
+            assertEquals((byte) v, b.getByte());
+            b.advance();
+            assertEquals((short) v, b.getShort());
+            b.advance();
+            assertEquals((int) v, b.getInt());
+            b.advance();
+            assertEquals(v, b.getLong());
+            b.advance();
+            assertEquals((float) v, b.getFloat(), 0.0f);
+            b.advance();
+            assertEquals((double) v, b.getDouble(), 0.0);
+            b.advance();
+        }
+        assertEquals(src.length - 1, b.getReadByteCount());
+        assertEquals(0, b.getRemaining());
+        assertEndOfBuffer(b);
+    }
+
+    @Test
+    public void testReadAndRefer() throws IOException {
+        byte[] src = new byte[32];
+        for(int i=0; i < src.length; i++) {
+            src[i] = (byte)i;
+        }
+        ByteArrayInput b = new ByteArrayInput(ByteBuffer.wrap(src, 4, 20));
+        assertEquals((byte)4, b.readByte());
+
+        byte[] buf = new byte[8];
+        assertEquals(8, b.read(buf, 0, 8));
+        assertEquals((byte)5, buf[0]);
+        assertEquals((byte)12, buf[7]);
+
+        assertTrue(b.tryRefer(new BufferReferer() {
+            public void refer(ByteBuffer bb, boolean gift) {
+                assertEquals(6, bb.remaining());
+                assertEquals((byte)13, bb.get());
+            }
+        }, 6));
+        assertFalse(b.tryRefer(new BufferReferer() {
+            public void refer(ByteBuffer bb, boolean gift) {
+                fail();
+            }
+        }, 6));
+
+        assertEquals(5, b.read(buf, 0, 8));
+        assertEquals((byte)23, buf[4]);
+        assertEquals(20, b.getReadByteCount());
+        assertEquals(0, b.read(buf, 0, 8));
+        assertEndOfBuffer(b);
+    }
+
+    private void assertEndOfBuffer(ByteArrayInput b) throws IOException {
+        try {
+            b.readByte();
+            fail();
+        } catch(EndOfBufferException eof) {
+        }
+        try {
+            b.getShort();
+            fail();
+        } catch(EndOfBufferException eof) {
+        }
+    }
+}
@@ -741,6 +741,37 @@ public class TestLinkedBufferInput {
         assertEquals(-1, b.writable);
     }
 
+    @Test
+    public void testGetSizeWithManyLinks() throws IOException {
+        byte[] data = new byte[10];
+        for(int i=0; i < data.length; i++) {
+            data[i] = (byte)i;
+        }
+
+        LinkedBufferInput b = new LinkedBufferInput(8);
+        int size = 0;
+        for(int i=0; i < 100; i++) {
+            b.feed(data, i % 2 == 0);
+            size += data.length;
+            assertEquals(size, b.getSize());
+        }
+        assertEquals(true, b.link.size() > 8);
+
+        for(int i=0; i < 100; i++) {
+            assertEquals((byte)0, b.readByte());
+            assertEquals((short)0x0102, b.getShort());
+            b.advance();
+            byte[] buf = new byte[7];
+            assertEquals(7, b.read(buf, 0, 7));
+            assertEquals((byte)9, buf[6]);
+            size -= data.length;
+            assertEquals(size, b.getSize());
+        }
+
+        assertEndOfBuffer(b);
+        assertEquals(0, b.getSize());
+    }
+
     private void assertEndOfBuffer(LinkedBufferInput b) throws IOException {
         try {
             b.readByte();
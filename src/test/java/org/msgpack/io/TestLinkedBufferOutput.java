@@ -4,6 +4,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertArrayEquals;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.io.DataOutputStream;
 import java.io.ByteArrayOutputStream;
 
@@ -89,5 +91,169 @@ public class TestLinkedBufferOutput {
         assertEquals(b1.length, b2.length);
         assertArrayEquals(b1, b2);
     }
-}
 
+    @Test
+    public void testToByteBuffers() throws IOException {
+        LinkedBufferOutput o = new LinkedBufferOutput(10);
+        byte[] raw = new byte[25];
+        for(int i=0; i < raw.length; i++) {
+            raw[i] = (byte)i;
+        }
+        o.writeLong(3L);
+        o.write(raw, 0, raw.length);
+        o.writeInt(4);
+        byte[] expected = o.toByteArray();
+
+        ByteBuffer[] bufs = o.toByteBuffers();
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        for(ByteBuffer bb : bufs) {
+            byte[] b = new byte[bb.remaining()];
+            bb.get(b);
+            bo.write(b);
+        }
+        assertArrayEquals(expected, bo.toByteArray());
+
+        bo = new ByteArrayOutputStream();
+        o.writeTo(bo);
+        assertArrayEquals(expected, bo.toByteArray());
+
+        SlowChannel ch = new SlowChannel(3);
+        assertEquals((long) expected.length, o.writeTo(ch));
+        assertArrayEquals(expected, ch.out.toByteArray());
+    }
+
+    @Test
+    public void testWriteByReference() throws IOException {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        DataOutputStream o1 = new DataOutputStream(bo);
+        LinkedBufferOutput o2 = new LinkedBufferOutput(16, 8);
+        byte[] raw = new byte[12];
+        for(int i=0; i < raw.length; i++) {
+            raw[i] = (byte)i;
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(9);
+        direct.put(raw, 0, 9);
+        direct.flip();
+        for(int i=0; i < 3; i++) {
+            o1.writeInt(i);
+            o2.writeInt(i);
+            o1.write(raw, 0, raw.length);
+            o2.write(raw, 0, raw.length);
+            o1.write(raw, 0, 5);
+            o2.write(raw, 0, 5);
+            o1.write(raw, 0, 9);
+            o2.write(direct.duplicate());
+        }
+        assertEquals(3 * (4 + 12 + 5 + 9), o2.getSize());
+        byte[] expected = bo.toByteArray();
+        assertArrayEquals(expected, o2.toByteArray());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        o2.writeTo(out);
+        assertArrayEquals(expected, out.toByteArray());
+
+        // blobs are linked, not copied
+        raw[0] = (byte)100;
+        assertEquals((byte)100, o2.toByteArray()[4]);
+    }
+
+    @Test
+    public void testWriteRawString() throws IOException {
+        StringBuilder ascii = new StringBuilder();
+        for(int i=0; i < 70000; i++) {
+            ascii.append((char) ('a' + i % 26));
+        }
+        String[] strings = new String[] {
+            "", "a", "0123456789", "0123456789a", ascii.substring(0, 31),
+            ascii.substring(0, 32), ascii.substring(0, 300), ascii.toString(),
+            "\u00e9t\u00e9", "\u65e5\u672c\u8a9e\u30c6\u30ad\u30b9\u30c8",
+            "a\ud83d\ude00b", "\ud83d", "x\ude00y\ud83dz", "\ud83d\ud83d\ude00",
+            ascii.substring(0, 100) + "\u00e9\u65e5\ud83d\ude00",
+        };
+        int[] sizes = new int[] { 10, 64, 512, 100000 };
+        for(int size : sizes) {
+            for(boolean direct : new boolean[] { false, true }) {
+                ByteArrayOutputStream bo = new ByteArrayOutputStream();
+                DataOutputStream o1 = new DataOutputStream(bo);
+                LinkedBufferOutput o2 = new LinkedBufferOutput(size,
+                        new ThreadLocalBufferAllocator(size, 4, direct));
+                for(String str : strings) {
+                    byte[] b = str.getBytes("UTF-8");
+                    if(b.length < 32) {
+                        o1.writeByte(0xa0 | b.length);
+                    } else if(b.length < 65536) {
+                        o1.writeByte(0xda);
+                        o1.writeShort(b.length);
+                    } else {
+                        o1.writeByte(0xdb);
+                        o1.writeInt(b.length);
+                    }
+                    o1.write(b);
+                    o1.writeByte(1);
+                    o2.writeRawString(str);
+                    o2.writeByte((byte)1);
+                }
+                assertArrayEquals(bo.toByteArray(), o2.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void testWriteRawStringFillsChunks() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for(int i=0; i < 160; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        String str = sb.toString();
+        LinkedBufferOutput o = new LinkedBufferOutput(512);
+        for(int i=0; i < 10; i++) {
+            o.writeRawString(str);
+        }
+        // 10 strings of 163 bytes are packed into 4 chunks of 512 bytes
+        // rather than taking a chunk each
+        assertEquals(1630, o.getSize());
+        assertEquals(4, o.toByteBuffers().length);
+        byte[] b = o.toByteArray();
+        for(int i=0; i < 10; i++) {
+            assertEquals((byte)0xda, b[i * 163]);
+            assertEquals(str, new String(b, i * 163 + 3, 160, "UTF-8"));
+        }
+    }
+
+    private static class SlowChannel implements GatheringByteChannel {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final int max;
+
+        SlowChannel(int max) {
+            this.max = max;
+        }
+
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            for(int i=offset; i < offset + length; i++) {
+                if(srcs[i].hasRemaining()) {
+                    return write(srcs[i]);
+                }
+            }
+            return 0;
+        }
+
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        public int write(ByteBuffer src) {
+            int n = Math.min(max, src.remaining());
+            for(int i=0; i < n; i++) {
+                out.write(src.get());
+            }
+            return n;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.msgpack.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.EOFException;
+
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.packer.BufferPacker;
+import org.msgpack.unpacker.Unpacker;
+
+
+public class TestMappedFileInput {
+    private File createFile(byte[] data) throws IOException {
+        File file = File.createTempFile("msgpack", ".bin");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void testSlidingRegion() throws IOException {
+        byte[] src = new byte[100];
+        for(int i=0; i < src.length; i++) {
+            src[i] = (byte)i;
+        }
+        MappedFileInput b = new MappedFileInput(createFile(src), 16);
+        try {
+            for(int i=0; i < 10; i++) {
+                assertEquals((byte)(i * 9), b.readByte());
+                int n = i * 9 + 1;
+                assertEquals(n << 24 | (n + 1) << 16 | (n + 2) << 8 | (n + 3), b.getInt());
+                b.advance();
+                byte[] buf = new byte[4];
+                assertEquals(4, b.read(buf, 0, 4));
+                assertEquals((byte)(i * 9 + 8), buf[3]);
+                assertEquals((long)(i * 9 + 9), b.getPosition());
+            }
+            assertEquals(90, b.getReadByteCount());
+            byte[] rest = new byte[20];
+            assertEquals(10, b.read(rest, 0, 20));
+            try {
+                b.readByte();
+                fail();
+            } catch(EOFException eof) {
+            }
+        } finally {
+            b.close();
+        }
+    }
+
+    @Test
+    public void testUnpack() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        BufferPacker pk = msgpack.createBufferPacker();
+        StringBuilder sb = new StringBuilder();
+        for(int i=0; i < 100; i++) {
+            pk.write(i * 1000L);
+            pk.write(sb.toString());
+            pk.write(new byte[i]);
+            pk.write(i * 0.5);
+            sb.append((char) ('a' + i % 26));
+        }
+        byte[] raw = pk.toByteArray();
+        File file = createFile(raw);
+
+        Unpacker u = msgpack.createUnpacker(file);
+        try {
+            sb = new StringBuilder();
+            for(int i=0; i < 100; i++) {
+                assertEquals(i * 1000L, u.readLong());
+                assertEquals(sb.toString(), u.readString());
+                assertArrayEquals(new byte[i], u.readByteArray());
+                assertEquals(i * 0.5, u.readDouble(), 0.0);
+                sb.append((char) ('a' + i % 26));
+            }
+            assertEquals(raw.length, u.getReadByteCount());
+        } finally {
+            u.close();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package org.msgpack.packer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.MessageTypeException;
+import org.msgpack.template.Templates;
+import org.msgpack.type.Value;
+import org.msgpack.type.ValueFactory;
+
+
+public class TestMessagePackPacker {
+    @Test
+    public void testWriteString() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        String[] strings = new String[] { "", "abc", "\u00e9\u65e5\ud83d\ude00", "\ud83d" };
+        BufferPacker pk = msgpack.createBufferPacker();
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        Packer spk = msgpack.createPacker(bo);
+        for(String s : strings) {
+            pk.write(s);
+            spk.write(s);
+        }
+        assertArrayEquals(bo.toByteArray(), pk.toByteArray());
+    }
+
+    @Test
+    public void testArrayEndAfterStrings() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        BufferPacker pk = msgpack.createBufferPacker();
+        pk.writeArrayBegin(3);
+        pk.write("a");
+        pk.write("b");
+        pk.writeArrayEnd(false);
+
+        Value v = msgpack.read(pk.toByteArray());
+        assertEquals(ValueFactory.createArrayValue(new Value[] {
+                ValueFactory.createRawValue("a"),
+                ValueFactory.createRawValue("b"),
+                ValueFactory.createNilValue(), }), v);
+    }
+
+    @Test
+    public void testEncodedStringCache() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for(int i=0; i < 40; i++) {
+            sb.append('k');
+        }
+        String longKey = sb.toString();
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("name", "value");
+        map.put("\u65e5\u672c", "v");
+        map.put(longKey, "v");
+
+        MessagePack plain = new MessagePack();
+        byte[] expected = plain.write(map);
+
+        MessagePack msgpack = new MessagePack();
+        EncodedStringCache cache = new EncodedStringCache(64, 64, true);
+        msgpack.setEncodedStringCache(cache);
+        byte[] first = msgpack.write(map);
+        assertArrayEquals(expected, first);
+        assertEquals(map, msgpack.read(first,
+                Templates.tMap(Templates.TString, Templates.TString)));
+
+        // the packer filled the cache with the keys, but not the values
+        byte[] encoded = cache.peek("name");
+        assertArrayEquals(plain.write("name"), encoded);
+        assertArrayEquals(plain.write("\u65e5\u672c"), cache.peek("\u65e5\u672c"));
+        assertArrayEquals(plain.write(longKey), cache.peek(longKey));
+        assertNull(cache.peek("value"));
+        assertNull(cache.peek("v"));
+
+        // and writes the cached keys again
+        assertArrayEquals(expected, msgpack.write(map));
+        assertSame(encoded, cache.peek("name"));
+        assertNull(cache.peek("value"));
+    }
+
+    @Test
+    public void testEncodedStringCacheAllStrings() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        msgpack.setEncodedStringCache(new EncodedStringCache(64, 8, false));
+        String[] strings = new String[] { "abc", "abc", "a longer string", "" };
+        EncodedStringCache cache = msgpack.getEncodedStringCache();
+        byte[] raw = msgpack.write(strings);
+        assertArrayEquals(new MessagePack().write(strings), raw);
+        // values are cached too
+        assertArrayEquals(new MessagePack().write("abc"), cache.peek("abc"));
+        assertNull(cache.peek("a longer string"));
+        assertArrayEquals(strings, msgpack.read(raw, String[].class));
+    }
+
+    @Test
+    public void testUnchecked() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        BufferPacker checked = msgpack.createBufferPacker();
+        MessagePackBufferPacker unchecked = (MessagePackBufferPacker) msgpack.createBufferPacker();
+        unchecked.setUnchecked(true);
+        for (Packer pk : new Packer[] { checked, unchecked }) {
+            pk.writeArrayBegin(3);
+            pk.write(1);
+            pk.writeMapBegin(1);
+            pk.write("k");
+            pk.write(2.5);
+            pk.writeMapEnd();
+            pk.write("v");
+            pk.writeArrayEnd();
+        }
+        assertArrayEquals(checked.toByteArray(), unchecked.toByteArray());
+
+        // element counts are verified at the end, missing ones are padded
+        unchecked.clear();
+        unchecked.writeArrayBegin(2);
+        unchecked.write(1);
+        try {
+            unchecked.writeArrayEnd(true);
+            fail();
+        } catch (MessageTypeException e) {
+        }
+        unchecked.writeArrayEnd(false);
+        assertArrayEquals(new byte[] { (byte) 0x92, 1, (byte) 0xc0 }, unchecked.toByteArray());
+
+        unchecked.clear();
+        unchecked.writeArrayBegin(1);
+        unchecked.write(1);
+        unchecked.write(2);
+        try {
+            unchecked.writeArrayEnd();
+            fail();
+        } catch (MessageTypeException e) {
+        }
+
+        unchecked.clear();
+        unchecked.writeMapBegin(1);
+        try {
+            unchecked.writeArrayEnd();
+            fail();
+        } catch (MessageTypeException e) {
+        }
+    }
+
+    @Test
+    public void testPrimitiveArrays() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        int[] ints = new int[] { 0, 127, -32, -33, -128, -129, 255, 256,
+                -32768, -32769, 65535, 65536, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        long[] longs = new long[] { 0L, -1L, 0xffffffffL, 0x100000000L,
+                Long.MAX_VALUE, Long.MIN_VALUE, Integer.MIN_VALUE - 1L };
+        float[] floats = new float[] { 0.0f, -1.5f, Float.MAX_VALUE };
+        double[] doubles = new double[] { 0.0, -1.5, Double.MIN_VALUE };
+
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        Packer expected = msgpack.createPacker(bo);
+        writeElements(expected, ints, longs, floats, doubles);
+
+        // small chunks to cross their boundaries
+        for (BufferPacker pk : new BufferPacker[] {
+                msgpack.createBufferPacker(), msgpack.createBufferPacker(16) }) {
+            pk.write(ints, 0, ints.length);
+            pk.write(longs, 0, longs.length);
+            pk.write(floats, 0, floats.length);
+            pk.write(doubles, 0, doubles.length);
+            pk.write(ints, 2, 3);
+            pk.write((double[]) null, 0, 0);
+            assertArrayEquals(bo.toByteArray(), pk.toByteArray());
+        }
+    }
+
+    @Test
+    public void testPrimitiveArrayRange() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        int[] ints = new int[] { 1, 2, 3 };
+        // the stream packer goes through the generic path of AbstractPacker
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        Packer[] packers = new Packer[] { msgpack.createBufferPacker(),
+                msgpack.createPacker(bo), new Unconverter(msgpack) };
+        for (Packer pk : packers) {
+            for (int[] range : new int[][] { { -1, 1 }, { 0, -1 }, { 2, 2 }, { 4, 0 } }) {
+                try {
+                    pk.write(ints, range[0], range[1]);
+                    fail();
+                } catch (IndexOutOfBoundsException e) {
+                }
+            }
+            pk.write(ints, 3, 0);
+        }
+        assertArrayEquals(new byte[] { (byte) 0x90 }, ((BufferPacker) packers[0]).toByteArray());
+        assertArrayEquals(new byte[] { (byte) 0x90 }, bo.toByteArray());
+        assertEquals(0, ((Unconverter) packers[2]).getResult().asArrayValue().size());
+    }
+
+    private static void writeElements(Packer pk, int[] ints, long[] longs,
+            float[] floats, double[] doubles) throws IOException {
+        pk.writeArrayBegin(ints.length);
+        for (int v : ints) {
+            pk.write(v);
+        }
+        pk.writeArrayEnd();
+        pk.writeArrayBegin(longs.length);
+        for (long v : longs) {
+            pk.write(v);
+        }
+        pk.writeArrayEnd();
+        pk.writeArrayBegin(floats.length);
+        for (float v : floats) {
+            pk.write(v);
+        }
+        pk.writeArrayEnd();
+        pk.writeArrayBegin(doubles.length);
+        for (double v : doubles) {
+            pk.write(v);
+        }
+        pk.writeArrayEnd();
+        pk.writeArrayBegin(3);
+        for (int i = 2; i < 5; i++) {
+            pk.write(ints[i]);
+        }
+        pk.writeArrayEnd();
+        pk.writeNil();
+    }
+
+    @Test
+    public void testOpenArrayAndMap() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        for(int bufferSize : new int[] { 16, 512 }) {
+            for(int n : new int[] { 0, 3, 20, 70000 }) {
+                MessagePackBufferPacker pk = new MessagePackBufferPacker(msgpack, bufferSize);
+                BufferPacker expected = msgpack.createBufferPacker();
+                pk.writeArrayBegin();
+                expected.writeArrayBegin(2);
+                pk.writeMapBegin();
+                expected.writeMapBegin(n);
+                for(int i=0; i < n; i++) {
+                    pk.write(i);
+                    pk.write(i * 2);
+                    expected.write(i);
+                    expected.write(i * 2);
+                }
+                pk.writeMapEnd();
+                expected.writeMapEnd();
+                pk.writeArrayBegin();
+                expected.writeArrayBegin(n);
+                for(int i=0; i < n; i++) {
+                    pk.write("v");
+                    expected.write("v");
+                }
+                pk.writeArrayEnd();
+                expected.writeArrayEnd();
+                pk.writeArrayEnd();
+                expected.writeArrayEnd();
+
+                assertEquals(msgpack.read(expected.toByteArray()),
+                        msgpack.read(pk.toByteArray()));
+                if (bufferSize == 512 && n < 20) {
+                    // the headers were shrunk
+                    assertArrayEquals(expected.toByteArray(), pk.toByteArray());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOpenArrayUnchecked() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        MessagePackBufferPacker pk = new MessagePackBufferPacker(msgpack);
+        pk.setUnchecked(true);
+        pk.writeArrayBegin(1);
+        pk.writeArrayBegin();
+        pk.write(1);
+        pk.write(2);
+        pk.writeArrayEnd();
+        pk.writeArrayEnd();
+        assertEquals(msgpack.read(new byte[] { (byte) 0x91, (byte) 0x92, 1, 2 }),
+                msgpack.read(pk.toByteArray()));
+    }
+
+    @Test
+    public void testOpenMapWithoutValue() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        MessagePackBufferPacker pk = new MessagePackBufferPacker(msgpack);
+        pk.writeMapBegin();
+        pk.write("k");
+        try {
+            pk.writeMapEnd(true);
+            fail();
+        } catch (MessageTypeException e) {
+        }
+        pk.writeMapEnd(false);
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("k", null);
+        assertArrayEquals(msgpack.write(map), pk.toByteArray());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testPrimitiveArrayOutOfRange() throws IOException {
+        new MessagePack().createBufferPacker().write(new int[4], 2, 3);
+    }
+}
@@ -0,0 +1,90 @@
+package org.msgpack.template;
+
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Throughput of threads looking templates up in one shared
+ * TemplateRegistry. It isn't run by the test suite; run it by hand:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:... \
+ *     org.msgpack.template.TemplateRegistryBenchmark [threads...]
+ * </pre>
+ */
+public class TemplateRegistryBenchmark {
+    private static final long DURATION_NANOS = 300L * 1000 * 1000;
+    private static final int ROUNDS = 7;
+
+    public List<String> strings;
+    public Map<String, List<Integer>> lists;
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = new int[] { 1, 8, 64 };
+        if (args.length > 0) {
+            threadCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                threadCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        TemplateRegistry registry = new TemplateRegistry(null);
+        // classes and memoized parameterized types, each looked up in turn
+        Type[] types = new Type[] { Integer.class, String.class, Long.class,
+                Double.class, Boolean.class, byte[].class, BigInteger.class,
+                Date.class,
+                TemplateRegistryBenchmark.class.getField("strings").getGenericType(),
+                TemplateRegistryBenchmark.class.getField("lists").getGenericType() };
+
+        for (int threads : threadCounts) {
+            double best = 0;
+            for (int r = 0; r < ROUNDS; r++) {
+                best = Math.max(best, run(registry, types, threads));
+            }
+            System.out.printf("threads=%d lookups/s=%.0f%n", threads, best);
+        }
+    }
+
+    private static double run(final TemplateRegistry registry, final Type[] types,
+            int threads) throws InterruptedException {
+        final long[] counts = new long[threads];
+        final Throwable[] errors = new Throwable[threads];
+        final long end = System.nanoTime() + DURATION_NANOS;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread() {
+                @Override
+                public void run() {
+                    long n = 0;
+                    try {
+                        while (System.nanoTime() < end) {
+                            for (int k = 0; k < 64; k++) {
+                                if (registry.lookup(types[k % types.length]) == null) {
+                                    throw new NullPointerException();
+                                }
+                            }
+                            n += 64;
+                        }
+                    } catch (Throwable e) {
+                        errors[id] = e;
+                    }
+                    counts[id] = n;
+                }
+            };
+            workers[t].start();
+        }
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            if (errors[t] != null) {
+                throw new RuntimeException(errors[t]);
+            }
+            total += counts[t];
+        }
+        return total * 1e9 / DURATION_NANOS;
+    }
+}
@@ -0,0 +1,67 @@
+package org.msgpack.template;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.packer.Packer;
+import org.msgpack.type.Value;
+import org.msgpack.type.ValueFactory;
+import org.msgpack.unpacker.Unpacker;
+
+
+public class TestAnyTemplate {
+
+    @Test
+    public void testMoreClassesThanInlineCache() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        List<Object> list = new ArrayList<Object>();
+        for (int i = 0; i < 3; i++) {
+            list.add(i);
+            list.add((long) i);
+            list.add("s" + i);
+            list.add((double) i);
+            list.add(true);
+            list.add(BigInteger.valueOf(i));
+        }
+        byte[] raw = msgpack.write(list);
+
+        List<Value> expected = new ArrayList<Value>();
+        for (int i = 0; i < 3; i++) {
+            expected.add(ValueFactory.createIntegerValue(i));
+            expected.add(ValueFactory.createIntegerValue(i));
+            expected.add(ValueFactory.createRawValue("s" + i));
+            expected.add(ValueFactory.createFloatValue((double) i));
+            expected.add(ValueFactory.createBooleanValue(true));
+            expected.add(ValueFactory.createIntegerValue(i));
+        }
+        assertEquals(ValueFactory.createArrayValue(expected.toArray(new Value[0])),
+                msgpack.read(raw));
+    }
+
+    @Test
+    public void testRegisterAfterWrite() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        List<Object> list = new ArrayList<Object>();
+        list.add("a");
+        msgpack.write(list);
+
+        msgpack.register(String.class, new AbstractTemplate<String>() {
+            public void write(Packer pk, String v, boolean required) throws IOException {
+                pk.write(v.length());
+            }
+
+            public String read(Unpacker u, String to, boolean required) throws IOException {
+                throw new UnsupportedOperationException();
+            }
+        });
+        Value v = msgpack.read(msgpack.write(list));
+        assertEquals(ValueFactory.createArrayValue(new Value[] {
+                ValueFactory.createIntegerValue(1) }), v);
+    }
+}
@@ -3,11 +3,18 @@ package org.msgpack.template;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.annotation.Message;
+import org.msgpack.packer.BufferPacker;
+import org.msgpack.unpacker.Unpacker;
 
 public class TestTemplateRegistry {
 
@@ -35,4 +42,102 @@ public class TestTemplateRegistry {
         assertThat(template, is(instanceOf(ListTemplate.class)));
     }
 
+    @Message
+    public static class Node {
+        public int value;
+        public Node next;
+        public Peer peer;
+    }
+
+    @Message
+    public static class Peer {
+        public String name;
+        public Node node;
+    }
+
+    @Test
+    public void testConcurrentLookupOfRecursiveTypes() throws Exception {
+        final TemplateRegistry registry = new TemplateRegistry(null);
+        final int n = 8;
+        final Template<?>[] nodes = new Template<?>[n];
+        final Template<?>[] peers = new Template<?>[n];
+        final Throwable[] errors = new Throwable[n];
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[n];
+        for (int i = 0; i < n; i++) {
+            final int t = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        if (t % 2 == 0) {
+                            nodes[t] = registry.lookup(Node.class);
+                            peers[t] = registry.lookup(Peer.class);
+                        } else {
+                            peers[t] = registry.lookup(Peer.class);
+                            nodes[t] = registry.lookup(Node.class);
+                        }
+                    } catch (Throwable e) {
+                        errors[t] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < n; i++) {
+            assertNull(errors[i]);
+            assertSame(registry.lookup(Node.class), nodes[i]);
+            assertSame(registry.lookup(Peer.class), peers[i]);
+        }
+
+        Node node = new Node();
+        node.value = 1;
+        node.next = new Node();
+        node.next.value = 2;
+        node.peer = new Peer();
+        node.peer.name = "p";
+        node.peer.node = new Node();
+        node.peer.node.value = 3;
+        // the templates built concurrently, including the references they
+        // hold to each other, must work
+        MessagePack msgpack = new MessagePack();
+        for (int i = 0; i < n; i++) {
+            @SuppressWarnings("unchecked")
+            Template<Node> tmpl = (Template<Node>) nodes[i];
+            BufferPacker packer = msgpack.createBufferPacker();
+            tmpl.write(packer, node);
+            Unpacker unpacker = msgpack.createBufferUnpacker(packer.toByteArray());
+            Node read = tmpl.read(unpacker, null);
+            assertEquals(1, read.value);
+            assertEquals(2, read.next.value);
+            assertEquals("p", read.peer.name);
+            assertEquals(3, read.peer.node.value);
+        }
+    }
+
+    public static class Generics {
+        public List<String> strings;
+        public Map<String, List<Integer>> lists;
+    }
+
+    @Test
+    public void testParameterizedTypeIsMemoized() throws Exception {
+        TemplateRegistry registry = new TemplateRegistry(null);
+        Type strings = Generics.class.getField("strings").getGenericType();
+        Type lists = Generics.class.getField("lists").getGenericType();
+        Template<?> stringsTemplate = registry.lookup(strings);
+        Template<?> listsTemplate = registry.lookup(lists);
+        assertThat(stringsTemplate, is(instanceOf(ListTemplate.class)));
+        assertThat(listsTemplate, is(instanceOf(MapTemplate.class)));
+        assertSame(stringsTemplate, registry.lookup(strings));
+        assertSame(listsTemplate, registry.lookup(lists));
+
+        // registering a template drops the memoized ones
+        registry.register(Integer.class, IntegerTemplate.getInstance());
+        assertNotSame(listsTemplate, registry.lookup(lists));
+    }
 }
@@ -0,0 +1,66 @@
+package org.msgpack.template.builder;
+
+import org.msgpack.MessagePack;
+import org.msgpack.annotation.Message;
+import org.msgpack.packer.BufferPacker;
+
+/**
+ * Compares Javassist templates of a class with public fields and of the
+ * same class with private fields. It isn't run by the test suite; run it
+ * by hand:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:... \
+ *     org.msgpack.template.builder.JavassistPrivateFieldsBenchmark
+ * </pre>
+ */
+public class JavassistPrivateFieldsBenchmark {
+    private static final int ROUNDS = 30;
+    private static final int ITERATIONS = 20000;
+
+    @Message
+    public static class PublicFields {
+        public int a = 1;
+        public long b = 2;
+        public double c = 3;
+        public String d = "x";
+        public int e = 5;
+    }
+
+    @Message
+    public static class PrivateFields {
+        private int a = 1;
+        private long b = 2;
+        private double c = 3;
+        private String d = "x";
+        private int e = 5;
+    }
+
+    public static void main(String[] args) throws Exception {
+        MessagePack msgpack = new MessagePack();
+        run(msgpack, new PublicFields(), PublicFields.class);
+        run(msgpack, new PrivateFields(), PrivateFields.class);
+    }
+
+    private static <T> void run(MessagePack msgpack, T obj, Class<T> c)
+            throws Exception {
+        BufferPacker packer = msgpack.createBufferPacker();
+        byte[] raw = msgpack.write(obj);
+        double bestWrite = Double.MAX_VALUE;
+        double bestRead = Double.MAX_VALUE;
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                packer.write(obj);
+                packer.clear();
+            }
+            bestWrite = Math.min(bestWrite, (System.nanoTime() - start) / (double) ITERATIONS);
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                msgpack.read(raw, c);
+            }
+            bestRead = Math.min(bestRead, (System.nanoTime() - start) / (double) ITERATIONS);
+        }
+        System.out.printf("%s write=%.0fns read=%.0fns%n", c.getSimpleName(), bestWrite, bestRead);
+    }
+}
@@ -0,0 +1,69 @@
+package org.msgpack.template.builder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.packer.BufferPacker;
+import org.msgpack.template.Template;
+import org.msgpack.template.TemplateRegistry;
+import org.msgpack.unpacker.BufferUnpacker;
+
+
+public class TestJavassistPrivateFields {
+
+    public static class PrivateFields {
+        private boolean z;
+        private byte b;
+        private short s;
+        private int i;
+        private long l;
+        private float f;
+        private double d;
+        private char c;
+        private String str;
+        private double[] ds;
+        private String nil;
+
+        public PrivateFields() {
+        }
+    }
+
+    @Test
+    public void testPrivateFields() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        TemplateRegistry registry = new TemplateRegistry(null);
+        JavassistTemplateBuilder builder = new JavassistTemplateBuilder(registry);
+        Template<PrivateFields> tmpl = builder.buildTemplate(PrivateFields.class);
+
+        PrivateFields v = new PrivateFields();
+        v.z = true;
+        v.b = -3;
+        v.s = 1000;
+        v.i = -70000;
+        v.l = 1L << 40;
+        v.f = 1.5f;
+        v.d = -2.25;
+        v.c = 'x';
+        v.str = "abc";
+        v.ds = new double[] { 1.0, 2.0 };
+
+        BufferPacker packer = msgpack.createBufferPacker();
+        tmpl.write(packer, v);
+        BufferUnpacker unpacker = msgpack.createBufferUnpacker(packer.toByteArray());
+        PrivateFields ret = tmpl.read(unpacker, null);
+        assertEquals(v.z, ret.z);
+        assertEquals(v.b, ret.b);
+        assertEquals(v.s, ret.s);
+        assertEquals(v.i, ret.i);
+        assertEquals(v.l, ret.l);
+        assertEquals(v.f, ret.f, 0.0f);
+        assertEquals(v.d, ret.d, 0.0);
+        assertEquals(v.c, ret.c);
+        assertEquals(v.str, ret.str);
+        assertArrayEquals(v.ds, ret.ds, 0.0);
+        assertNull(ret.nil);
+    }
+}
@@ -0,0 +1,128 @@
+package org.msgpack.unpacker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.packer.BufferPacker;
+import org.msgpack.type.Value;
+import org.msgpack.type.ValueFactory;
+
+
+public class TestChannelUnpacker {
+    // returns at most 'step' bytes per read and would-block every other call
+    private static class TrickleChannel implements ReadableByteChannel {
+        private final byte[] data;
+        private final int step;
+        private int position;
+        private boolean block;
+
+        TrickleChannel(byte[] data, int step) {
+            this.data = data;
+            this.step = step;
+        }
+
+        public int read(ByteBuffer dst) {
+            if (position == data.length) {
+                return -1;
+            }
+            block = !block;
+            if (block) {
+                return 0;
+            }
+            int n = Math.min(step, data.length - position);
+            dst.put(data, position, n);
+            position += n;
+            return n;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public void close() {
+        }
+    }
+
+    private static class Collector implements ChannelUnpacker.Callback {
+        List<Value> values = new ArrayList<Value>();
+
+        public void onValue(Value value) {
+            values.add(value);
+        }
+    }
+
+    private List<Value> createValues() {
+        List<Value> vs = new ArrayList<Value>();
+        for(int i=0; i < 20; i++) {
+            Value nested = ValueFactory.createArrayValue(new Value[] {
+                    ValueFactory.createIntegerValue(i * 100000L),
+                    ValueFactory.createRawValue(new byte[i * 3]),
+                    ValueFactory.createArrayValue(new Value[0]), });
+            vs.add(ValueFactory.createMapValue(new Value[] {
+                    ValueFactory.createRawValue("k" + i),
+                    nested,
+                    ValueFactory.createIntegerValue(-i),
+                    ValueFactory.createFloatValue(i * 0.25), }));
+            vs.add(ValueFactory.createIntegerValue(i));
+        }
+        return vs;
+    }
+
+    @Test
+    public void testEachByte() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        List<Value> vs = createValues();
+        BufferPacker pk = msgpack.createBufferPacker();
+        for(Value v : vs) {
+            pk.write(v);
+        }
+        byte[] raw = pk.toByteArray();
+
+        for(int step = 1; step <= 7; step += 3) {
+            Collector c = new Collector();
+            ChannelUnpacker u = new ChannelUnpacker(msgpack,
+                    new TrickleChannel(raw, step), c, 16);
+            int total = 0;
+            while (true) {
+                int n = u.read();
+                if (n < 0) {
+                    break;
+                }
+                total += n;
+            }
+            assertEquals(raw.length, total);
+            assertEquals(vs, c.values);
+            assertEquals(0, u.getBufferedSize());
+        }
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        BufferPacker pk = msgpack.createBufferPacker();
+        pk.write(1);
+        pk.writeArrayBegin(2);
+        pk.write(2);
+        byte[] raw = pk.toByteArray();
+
+        Collector c = new Collector();
+        ChannelUnpacker u = new ChannelUnpacker(msgpack, new TrickleChannel(raw, 100), c);
+        assertEquals(0, u.read());
+        assertEquals(raw.length, u.read());
+        assertEquals(1, c.values.size());
+        try {
+            u.read();
+            fail();
+        } catch (EOFException e) {
+        }
+    }
+}
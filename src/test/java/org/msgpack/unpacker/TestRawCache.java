@@ -0,0 +1,105 @@
+package org.msgpack.unpacker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.packer.BufferPacker;
+import org.msgpack.type.MapValue;
+import org.msgpack.type.Value;
+import org.msgpack.type.ValueFactory;
+
+
+public class TestRawCache {
+    private byte[] createRecords(MessagePack msgpack, String longKey) throws IOException {
+        BufferPacker pk = msgpack.createBufferPacker();
+        for(int i=0; i < 3; i++) {
+            pk.writeMapBegin(2);
+            pk.write("id");
+            pk.write(i);
+            pk.write(longKey);
+            pk.write("v" + i);
+            pk.writeMapEnd();
+        }
+        return pk.toByteArray();
+    }
+
+    @Test
+    public void testReadString() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        String longKey = "a key that is longer than the cache limit";
+        byte[] raw = createRecords(msgpack, longKey);
+
+        Unpacker u = msgpack.createUnpacker(new ByteArrayInputStream(raw));
+        u.setRawCache(new RawCache(1024, 8));
+        String[] ids = new String[3];
+        String[] longs = new String[3];
+        for(int i=0; i < 3; i++) {
+            assertEquals(2, u.readMapBegin());
+            ids[i] = u.readString();
+            assertEquals(i, u.readInt());
+            longs[i] = u.readString();
+            assertEquals("v" + i, u.readString());
+            u.readMapEnd();
+        }
+        assertEquals("id", ids[0]);
+        assertSame(ids[0], ids[1]);
+        assertSame(ids[0], ids[2]);
+        assertEquals(longKey, longs[0]);
+        assertNotSame(longs[0], longs[1]);
+    }
+
+    @Test
+    public void testReadValue() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        byte[] raw = createRecords(msgpack, "name");
+
+        BufferUnpacker u = msgpack.createBufferUnpacker(raw);
+        u.setRawCache(new RawCache());
+        MapValue m1 = u.readValue().asMapValue();
+        MapValue m2 = u.readValue().asMapValue();
+        Value[] k1 = m1.keySet().toArray(new Value[0]);
+        Value[] k2 = m2.keySet().toArray(new Value[0]);
+        for(int i=0; i < k1.length; i++) {
+            assertSame(k1[i], k2[i]);
+        }
+        assertEquals(ValueFactory.createRawValue("v1"), m2.get(ValueFactory.createRawValue("name")));
+    }
+
+    @Test
+    public void testConverter() throws IOException {
+        MessagePack msgpack = new MessagePack();
+        Value v = ValueFactory.createArrayValue(new Value[] {
+                ValueFactory.createRawValue("key"),
+                ValueFactory.createRawValue("key"), });
+        Converter c = new Converter(msgpack, v);
+        c.setRawCache(new RawCache());
+        c.readArrayBegin();
+        String s1 = c.readString();
+        String s2 = c.readString();
+        c.readArrayEnd();
+        assertEquals("key", s1);
+        assertSame(s1, s2);
+    }
+
+    @Test
+    public void testEviction() {
+        RawCache cache = new RawCache(1, 16);
+        ByteBuffer a = ByteBuffer.wrap(new byte[] { 'a' });
+        ByteBuffer b = ByteBuffer.wrap(new byte[] { 'b' });
+        cache.putString(a, "a");
+        assertEquals("a", cache.getString(a));
+        cache.putString(b, "b");
+        assertNull(cache.getString(a));
+        assertEquals("b", cache.getString(b));
+        cache.clear();
+        assertNull(cache.getString(b));
+    }
+}
@@ -0,0 +1,74 @@
+package org.msgpack.unpacker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.msgpack.MessageTypeException;
+
+
+public class TestStringAccept {
+    private static final String[] STRINGS = new String[] {
+        "a", "plain ascii text", "\u00e9t\u00e9", "abc\u65e5\u672c", "\ud83d\ude00x",
+    };
+
+    private static final byte[][] MALFORMED = new byte[][] {
+        { (byte)0xc3 }, { 'a', (byte)0xff, 'b' }, { (byte)0xed, (byte)0xa0, (byte)0x80 },
+    };
+
+    @Test
+    public void testAcceptRaw() throws Exception {
+        StringAccept a = new StringAccept();
+        for(String s : STRINGS) {
+            a.acceptRaw(s.getBytes("UTF-8"));
+            assertEquals(s, a.value);
+        }
+        for(byte[] b : MALFORMED) {
+            try {
+                a.acceptRaw(b);
+                fail();
+            } catch (MessageTypeException e) {
+            }
+        }
+    }
+
+    @Test
+    public void testRefer() throws Exception {
+        StringAccept a = new StringAccept();
+        for(String s : STRINGS) {
+            byte[] b = s.getBytes("UTF-8");
+            byte[] padded = new byte[b.length + 4];
+            System.arraycopy(b, 0, padded, 2, b.length);
+            ByteBuffer heap = ByteBuffer.wrap(padded, 1, b.length + 2).slice();
+            heap.position(1);
+            heap.limit(1 + b.length);
+            a.refer(heap, false);
+            assertEquals(s, a.value);
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(b.length + 1);
+            direct.put((byte)'z');
+            direct.put(b);
+            direct.flip();
+            direct.position(1);
+            a.refer(direct, false);
+            assertEquals(s, a.value);
+        }
+        for(byte[] b : MALFORMED) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(b.length);
+            direct.put(b);
+            direct.flip();
+            try {
+                a.refer(ByteBuffer.wrap(b), false);
+                fail();
+            } catch (MessageTypeException e) {
+            }
+            try {
+                a.refer(direct, false);
+                fail();
+            } catch (MessageTypeException e) {
+            }
+        }
+    }
+}
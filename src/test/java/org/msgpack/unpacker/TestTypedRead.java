@@ -0,0 +1,158 @@
+package org.msgpack.unpacker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.MessageTypeException;
+import org.msgpack.packer.BufferPacker;
+import org.msgpack.type.Value;
+
+public class TestTypedRead {
+    @Test
+    public void testReadIntOfAllWidths() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        int[] values = new int[] { 0, 127, -32, -33, 255, -128, 65535,
+                -32768, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        BufferPacker packer = msgpack.createBufferPacker();
+        for (int v : values) {
+            packer.write(v);
+        }
+        byte[] bytes = packer.toByteArray();
+
+        BufferUnpacker unpacker = msgpack.createBufferUnpacker(bytes);
+        for (int v : values) {
+            assertEquals(v, unpacker.readInt());
+        }
+        unpacker = msgpack.createBufferUnpacker(bytes);
+        for (int v : values) {
+            assertEquals((long) v, unpacker.readLong());
+        }
+        assertEquals(bytes.length, unpacker.getReadByteCount());
+    }
+
+    @Test
+    public void testReadLongOfAllWidths() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        long[] values = new long[] { 0L, 0xffffffffL, Long.MAX_VALUE,
+                Long.MIN_VALUE, -1L };
+        BufferPacker packer = msgpack.createBufferPacker();
+        for (long v : values) {
+            packer.write(v);
+        }
+        BufferUnpacker unpacker = msgpack.createBufferUnpacker(packer.toByteArray());
+        for (long v : values) {
+            assertEquals(v, unpacker.readLong());
+        }
+    }
+
+    @Test
+    public void testIntOverflow() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        // unsigned int 32, signed int 64 and unsigned int 64 which don't fit
+        // in int, followed by 1
+        byte[] bytes = new byte[] {
+                (byte) 0xce, (byte) 0x80, 0, 0, 0,
+                (byte) 0xd3, 0, 0, 0, 1, 0, 0, 0, 0,
+                (byte) 0xcf, (byte) 0x80, 0, 0, 0, 0, 0, 0, 0,
+                1 };
+        BufferUnpacker unpacker = msgpack.createBufferUnpacker(bytes);
+        assertOverflow(unpacker);
+        assertEquals(0x80000000L, unpacker.readLong());
+        assertOverflow(unpacker);
+        assertEquals(0x100000000L, unpacker.readLong());
+        assertOverflow(unpacker);
+        try {
+            unpacker.readLong();
+            fail();
+        } catch (MessageTypeException e) {
+        }
+        unpacker.skip();
+        assertEquals(1, unpacker.readInt());
+    }
+
+    private static void assertOverflow(Unpacker unpacker) throws Exception {
+        try {
+            unpacker.readInt();
+            fail();
+        } catch (MessageTypeException e) {
+        }
+    }
+
+    @Test
+    public void testReadString() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        String[] values = new String[] { "", "a", sb.substring(0, 31),
+                sb.substring(0, 32), sb.toString(), "\u3042" };
+        BufferPacker packer = msgpack.createBufferPacker();
+        for (String v : values) {
+            packer.write(v);
+        }
+        packer.write(1);
+        BufferUnpacker unpacker = msgpack.createBufferUnpacker(packer.toByteArray());
+        for (String v : values) {
+            assertEquals(v, unpacker.readString());
+        }
+        try {
+            unpacker.readString();
+            fail();
+        } catch (MessageTypeException e) {
+        }
+    }
+
+    @Test
+    public void testReadPrimitiveArrays() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        int[] ints = new int[] { 1, -200, 70000, Integer.MIN_VALUE };
+        long[] longs = new long[] { 1L, 0xffffffffL, Long.MIN_VALUE };
+        double[] doubles = new double[] { 0.5, -2.25 };
+        BufferPacker packer = msgpack.createBufferPacker();
+        packer.writeArrayBegin(4);
+        packer.write(ints, 0, ints.length);
+        packer.write(longs, 0, longs.length);
+        packer.write(doubles, 0, doubles.length);
+        packer.write(doubles, 0, doubles.length);
+        packer.writeArrayEnd();
+        byte[] bytes = packer.toByteArray();
+
+        BufferUnpacker unpacker = msgpack.createBufferUnpacker(bytes);
+        assertEquals(4, unpacker.readArrayBegin());
+        assertArrayEquals(ints, unpacker.readIntArray(null));
+        assertArrayEquals(longs, unpacker.readLongArray(new long[0]));
+        double[] to = new double[2];
+        assertSame(to, unpacker.readDoubleArray(to));
+        assertArrayEquals(doubles, to, 0.0);
+        float[] floats = unpacker.readFloatArray(null);
+        assertEquals(0.5f, floats[0], 0.0f);
+        assertEquals(-2.25f, floats[1], 0.0f);
+        unpacker.readArrayEnd(true);
+        assertEquals(bytes.length, unpacker.getReadByteCount());
+
+        // through the Converter
+        Value v = msgpack.read(bytes);
+        Unpacker converter = new Converter(msgpack, v);
+        converter.readArrayBegin();
+        assertArrayEquals(ints, converter.readIntArray(null));
+        assertArrayEquals(longs, converter.readLongArray(null));
+    }
+
+    @Test
+    public void testReadIntArrayOfDoubles() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        BufferPacker packer = msgpack.createBufferPacker();
+        packer.write(new double[] { 1.0 }, 0, 1);
+        BufferUnpacker unpacker = msgpack.createBufferUnpacker(packer.toByteArray());
+        try {
+            unpacker.readIntArray(null);
+            fail();
+        } catch (MessageTypeException e) {
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package org.msgpack.unpacker;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
 
 import org.junit.Test;
 import org.msgpack.MessagePack;
@@ -8,6 +11,7 @@ import org.msgpack.packer.BufferPacker;
 import org.msgpack.unpacker.BufferUnpacker;
 import org.msgpack.type.Value;
 import org.msgpack.type.ValueFactory;
+import org.msgpack.type.ValueType;
 
 public class TestUnpackerSkip {
     @Test
@@ -80,4 +84,47 @@ public class TestUnpackerSkip {
             assertEquals(v2, v2a);
         }
     }
+
+    @Test
+    public void testScalarsOfAllWidths() throws Exception {
+        MessagePack msgpack = new MessagePack();
+
+        BufferPacker packer = msgpack.createBufferPacker();
+        packer.writeNil();
+        packer.write(true);
+        packer.write(-1);
+        packer.write(200);
+        packer.write(-200);
+        packer.write(100000);
+        packer.write(Long.MAX_VALUE);
+        packer.write(1.5f);
+        packer.write(2.5);
+        packer.write("");
+        packer.write(7);
+
+        byte[] bytes = packer.toByteArray();
+        BufferUnpacker unpacker = msgpack.createBufferUnpacker(bytes);
+
+        ValueType[] types = new ValueType[] { ValueType.NIL,
+                ValueType.BOOLEAN, ValueType.INTEGER, ValueType.INTEGER,
+                ValueType.INTEGER, ValueType.INTEGER, ValueType.INTEGER,
+                ValueType.FLOAT, ValueType.FLOAT, ValueType.RAW };
+        for (int i = 0; i < types.length; i++) {
+            assertEquals(types[i], unpacker.getNextType());
+            unpacker.skip();
+        }
+        assertEquals(7, unpacker.readInt());
+        assertEquals(bytes.length, unpacker.getReadByteCount());
+    }
+
+    @Test
+    public void testInvalidByte() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        BufferUnpacker unpacker = msgpack.createBufferUnpacker(new byte[] { (byte) 0xc1 });
+        try {
+            unpacker.getNextType();
+            fail();
+        } catch (IOException e) {
+        }
+    }
 }
@@ -0,0 +1,157 @@
+package org.msgpack.unpacker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.MessageTypeException;
+import org.msgpack.packer.BufferPacker;
+import org.msgpack.type.Value;
+import org.msgpack.type.ValueFactory;
+
+public class TestUnpackerUnchecked {
+    @Test
+    public void testRead() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        BufferPacker packer = msgpack.createBufferPacker();
+        for (int i = 0; i < 3; i++) {
+            packer.writeArrayBegin(4);
+            packer.write(i);
+            packer.write("s" + i);
+            packer.writeMapBegin(1);
+            packer.write("k");
+            packer.write(i * 0.5);
+            packer.writeMapEnd();
+            packer.writeArrayBegin(2);
+            packer.write(true);
+            packer.writeNil();
+            packer.writeArrayEnd();
+            packer.writeArrayEnd();
+        }
+        byte[] bytes = packer.toByteArray();
+
+        MessagePackUnpacker unpacker = (MessagePackUnpacker) msgpack.createBufferUnpacker(bytes);
+        unpacker.setUnchecked(true);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(4, unpacker.readArrayBegin());
+            assertEquals(i, unpacker.readInt());
+            assertEquals("s" + i, unpacker.readString());
+            if (i == 1) {
+                unpacker.skip();
+                assertEquals(ValueFactory.createArrayValue(new Value[] {
+                        ValueFactory.createBooleanValue(true),
+                        ValueFactory.createNilValue() }), unpacker.readValue());
+            } else {
+                assertEquals(1, unpacker.readMapBegin());
+                assertEquals("k", unpacker.readString());
+                assertEquals(i * 0.5, unpacker.readDouble(), 0.0);
+                unpacker.readMapEnd(true);
+                assertEquals(2, unpacker.readArrayBegin());
+                assertEquals(true, unpacker.readBoolean());
+                assertTrue(unpacker.trySkipNil());
+                unpacker.readArrayEnd(true);
+            }
+            unpacker.readArrayEnd(true);
+        }
+        assertEquals(bytes.length, unpacker.getReadByteCount());
+    }
+
+    @Test
+    public void testRemainingElements() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        BufferPacker packer = msgpack.createBufferPacker();
+        packer.writeArrayBegin(3);
+        packer.writeMapBegin(2);
+        packer.write("a");
+        packer.write(1);
+        packer.write("b");
+        packer.write(new int[] { 2, 3 });
+        packer.writeMapEnd();
+        packer.write(4);
+        packer.write(5);
+        packer.writeArrayEnd();
+        packer.write(6);
+        byte[] bytes = packer.toByteArray();
+
+        MessagePackUnpacker unpacker = (MessagePackUnpacker) msgpack.createBufferUnpacker(bytes);
+        unpacker.setUnchecked(true);
+        assertEquals(3, unpacker.readArrayBegin());
+        assertEquals(2, unpacker.readMapBegin());
+        assertEquals("a", unpacker.readString());
+        unpacker.readMapEnd();
+        assertEquals(4, unpacker.readInt());
+        assertTrue(!unpacker.trySkipNil());
+        unpacker.readArrayEnd();
+        assertEquals(6, unpacker.readInt());
+        assertEquals(bytes.length, unpacker.getReadByteCount());
+
+        unpacker = (MessagePackUnpacker) msgpack.createBufferUnpacker(bytes);
+        unpacker.setUnchecked(true);
+        unpacker.readArrayBegin();
+        unpacker.skip();
+        try {
+            unpacker.readArrayEnd(true);
+            fail();
+        } catch (MessageTypeException e) {
+        }
+    }
+
+    @Test
+    public void testTooManyElements() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        BufferPacker packer = msgpack.createBufferPacker();
+        packer.writeArrayBegin(1);
+        packer.write(1);
+        packer.writeArrayEnd();
+        packer.write(2);
+
+        MessagePackUnpacker unpacker = (MessagePackUnpacker) msgpack.createBufferUnpacker(packer.toByteArray());
+        unpacker.setUnchecked(true);
+        assertEquals(1, unpacker.readArrayBegin());
+        assertEquals(1, unpacker.readInt());
+        assertTrue(unpacker.trySkipNil());
+        assertEquals(2, unpacker.readInt());
+        try {
+            unpacker.readArrayEnd();
+            fail();
+        } catch (MessageTypeException e) {
+        }
+    }
+
+    @Test
+    public void testNestingIsChecked() throws Exception {
+        MessagePack msgpack = new MessagePack();
+        BufferPacker packer = msgpack.createBufferPacker();
+        packer.writeArrayBegin(1);
+        packer.writeMapBegin(0);
+        packer.writeMapEnd();
+        packer.writeArrayEnd();
+
+        MessagePackUnpacker unpacker = (MessagePackUnpacker) msgpack.createBufferUnpacker(packer.toByteArray());
+        unpacker.setUnchecked(true);
+        unpacker.readArrayBegin();
+        unpacker.readMapBegin();
+        try {
+            unpacker.readArrayEnd();
+            fail();
+        } catch (MessageTypeException e) {
+        }
+    }
+
+    @Test
+    public void testTooDeepNesting() throws Exception {
+        byte[] bytes = new byte[UnpackerStack.MAX_STACK_SIZE + 1];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) 0x91; // FixArray of 1
+        }
+        MessagePack msgpack = new MessagePack();
+        Unpacker unpacker = msgpack.createBufferUnpacker(bytes);
+        try {
+            unpacker.skip();
+            fail();
+        } catch (MessageTypeException e) {
+        }
+    }
+}